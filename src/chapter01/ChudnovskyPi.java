@@ -0,0 +1,230 @@
+package chapter01;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calculo de pi com precisao arbitraria pela serie de Chudnovsky, que adiciona
+ * cerca de 14 digitos por termo (a serie de Leibniz do {@link PiCalculator} nao
+ * passa dos 15 digitos de um double):
+ * 	- 1/pi = 12 * soma((-1)^k * (6k)! * (13591409 + 545140134k) / ((3k)! * (k!)^3 * 640320^(3k + 3/2)))
+ *
+ * A soma e feita por divisao binaria (binary splitting): para um intervalo de
+ * termos [a, b) calculamos tres inteiros P, Q e T, e os intervalos vizinhos sao
+ * combinados com P = P1 * P2, Q = Q1 * Q2 e T = T1 * Q2 + P1 * T2. As duas
+ * metades de cada intervalo sao independentes e calculadas em paralelo.
+ *
+ * O resultado com mais termos e guardado: pedidos com menos digitos sao
+ * atendidos na hora e pedidos com mais digitos calculam somente os termos que
+ * faltam e os combinam com os ja calculados.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class ChudnovskyPi {
+
+	private static final BigInteger A = BigInteger.valueOf(13591409);
+	private static final BigInteger B = BigInteger.valueOf(545140134);
+	// 640320^3 / 24
+	private static final BigInteger C3_OVER_24 = BigInteger.valueOf(640320).pow(3).divide(BigInteger.valueOf(24));
+
+	// Digitos decimais adicionados por termo: log10(640320^3 / (24 * 6 * 2 * 6))
+	private static final double DIGITS_PER_TERM = 14.181647462725477;
+
+	// Digitos extras calculados para que os digitos pedidos sejam todos corretos
+	private static final int GUARD_DIGITS = 10;
+
+	// Intervalos com menos termos que isso sao calculados sem criar tarefas
+	private static final long PARALLEL_THRESHOLD = 64;
+
+	// P, Q e T de um intervalo de termos
+	private static class Split{
+		final BigInteger p, q, t;
+
+		Split(BigInteger p, BigInteger q, BigInteger t) {
+			this.p = p;
+			this.q = q;
+			this.t = t;
+		}
+
+		// Combina com o intervalo seguinte
+		Split combine(Split next) {
+			return new Split(p.multiply(next.p), q.multiply(next.q), t.multiply(next.q).add(p.multiply(next.t)));
+		}
+	}
+
+	// Resultado guardado: os termos [0, terms) e o valor de pi com os seus digitos
+	private static class Cached{
+		final long terms;
+		final Split split;
+		final int digits;
+		final BigDecimal pi;
+
+		Cached(long terms, Split split, int digits, BigDecimal pi) {
+			this.terms = terms;
+			this.split = split;
+			this.digits = digits;
+			this.pi = pi;
+		}
+	}
+
+	private static volatile Cached cached = null;
+
+	private ChudnovskyPi() {
+	}
+
+	/**
+	 * Calcula as duas metades do intervalo de termos [a, b) em paralelo.
+	 * */
+	private static class SplitTask extends RecursiveTask<Split>{
+		private static final long serialVersionUID = 1L;
+
+		private final long a, b;
+
+		SplitTask(long a, long b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		protected Split compute() {
+			if(b - a <= PARALLEL_THRESHOLD) {
+				return split(a, b);
+			}
+
+			long middle = (a + b) >>> 1;
+			SplitTask right = new SplitTask(middle, b);
+			right.fork();
+			Split left = new SplitTask(a, middle).compute();
+
+			return left.combine(right.join());
+		}
+	}
+
+	// Divisao binaria sequencial do intervalo [a, b)
+	private static Split split(long a, long b) {
+		if(b - a == 1) {
+			BigInteger p, q;
+			if(a == 0) {
+				p = q = BigInteger.ONE;
+			}else {
+				BigInteger k = BigInteger.valueOf(a);
+				p = BigInteger.valueOf(6 * a - 5).multiply(BigInteger.valueOf(2 * a - 1)).multiply(BigInteger.valueOf(6 * a - 1));
+				q = k.multiply(k).multiply(k).multiply(C3_OVER_24);
+			}
+
+			BigInteger t = p.multiply(A.add(B.multiply(BigInteger.valueOf(a))));
+			return new Split(p, q, (a & 1) == 0 ? t : t.negate());
+		}
+
+		long middle = (a + b) >>> 1;
+		return split(a, middle).combine(split(middle, b));
+	}
+
+	/**
+	 * Calcula pi no pool comum.
+	 *
+	 * @see #pi(int, ForkJoinPool)
+	 * */
+	public static BigDecimal pi(int digits) {
+		return pi(digits, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Calcula pi com a quantidade de casas decimais pedida, todas corretas
+	 * (os digitos seguintes sao truncados).
+	 *
+	 * @param digits quantidade de casas decimais
+	 * @param pool pool onde as tarefas da divisao binaria serao executadas
+	 * @return pi com {@code digits} casas decimais
+	 * */
+	public static BigDecimal pi(int digits, ForkJoinPool pool) {
+		if(digits < 0) {
+			throw new IllegalArgumentException("A quantidade de digitos nao pode ser negativa: " + digits);
+		}
+
+		Cached current = cached;
+		if(current == null || current.digits < digits) {
+			current = compute(digits, pool);
+		}
+
+		return current.pi.setScale(digits, RoundingMode.DOWN);
+	}
+
+	// Calcula os termos que faltam e atualiza o resultado guardado
+	private static synchronized Cached compute(int digits, ForkJoinPool pool) {
+		Cached current = cached;
+		// Outra thread pode ter calculado enquanto esperavamos
+		if(current != null && current.digits >= digits) {
+			return current;
+		}
+
+		int precision = digits + GUARD_DIGITS;
+		long terms = (long) (precision / DIGITS_PER_TERM) + 2;
+
+		Split split;
+		if(current == null) {
+			split = pool.invoke(new SplitTask(0, terms));
+		}else if(current.terms < terms) {
+			// Somente os termos novos sao calculados
+			split = current.split.combine(pool.invoke(new SplitTask(current.terms, terms)));
+		}else {
+			split = current.split;
+			terms = current.terms;
+		}
+
+		// pi = 426880 * sqrt(10005) * Q / T, tudo em inteiros multiplicados por 10^precision
+		BigInteger scale = BigInteger.TEN.pow(precision);
+		BigInteger sqrt = sqrt(BigInteger.valueOf(10005).multiply(scale.multiply(scale)));
+		BigInteger scaledPi = split.q.multiply(BigInteger.valueOf(426880)).multiply(sqrt).divide(split.t);
+
+		current = new Cached(terms, split, digits, new BigDecimal(scaledPi, precision));
+		cached = current;
+
+		return current;
+	}
+
+	/**
+	 * Raiz quadrada inteira (arredondada para baixo). O BigInteger.sqrt() faz
+	 * todas as iteracoes de Newton com a precisao completa, aqui a raiz da metade
+	 * superior dos bits e calculada recursivamente e uma unica iteracao com a
+	 * precisao completa basta.
+	 * */
+	static BigInteger sqrt(BigInteger n) {
+		if(n.bitLength() < 64) {
+			return n.sqrt();
+		}
+
+		int shift = n.bitLength() / 4;
+		BigInteger root = sqrt(n.shiftRight(2 * shift)).shiftLeft(shift);
+		root = root.add(n.divide(root)).shiftRight(1);
+
+		// A iteracao deixa a raiz no maximo alguns valores acima ou abaixo
+		while(root.multiply(root).compareTo(n) > 0) {
+			root = root.subtract(BigInteger.ONE);
+		}
+		while(root.add(BigInteger.ONE).pow(2).compareTo(n) <= 0) {
+			root = root.add(BigInteger.ONE);
+		}
+
+		return root;
+	}
+
+	public static void main(String[] args) {
+		System.out.println(pi(100));
+
+		long start = System.nanoTime();
+		String digits = pi(100000).toPlainString();
+		System.out.println("100000 digitos em " + (System.nanoTime() - start) / 1_000_000 + " ms, ultimos: "
+				+ digits.substring(digits.length() - 20));
+
+		// Menos digitos vem direto do resultado guardado
+		start = System.nanoTime();
+		pi(50000);
+		System.out.println("50000 digitos em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+}
@@ -1,17 +1,85 @@
 package chapter01;
 
-import java.util.BitSet;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Compress�o de dados.
+ * Compressão de dados.
+ *
+ * Cada nucleotídeo ocupa 2 bits (A -> 00, C -> 01, G -> 10, T -> 11) e são
+ * empacotados 32 nucleotídeos por palavra de 64 bits ({@code long}). O
+ * nucleotídeo de índice i fica na palavra i / 32, nos bits 2 * (i % 32) e
+ * 2 * (i % 32) + 1, ou seja, o primeiro nucleotídeo ocupa os bits menos
+ * significativos da palavra.
+ *
+ * Bases ambíguas (N e os demais códigos IUPAC) não cabem em 2 bits: elas
+ * ficam com o código de A no corpo compressado e são guardadas à parte, em
+ * uma tabela de trechos repetidos ({@link AmbiguousRuns}). Genes somente com
+ * ACGT não possuem essa tabela e não pagam nada a mais por ela.
+ *
+ * Os objetos são imutáveis, portanto podem ser compartilhados entre threads.
+ * Como {@link CharSequence}, qualquer posição ou trecho pode ser lido
+ * diretamente das palavras compressadas, sem descompressar o gene inteiro.
  * 
  * @author EmersonPC
  */
-public class CompressedGene {
+public class CompressedGene implements CharSequence {
     
-    // Conjunto arbitrário de bits
-    private static BitSet bitSet;
-    private static int length;
+    // Quantidade de nucleotídeos em cada palavra de 64 bits
+    static final int NUCLEOTIDES_PER_WORD = 32;
+
+    // Abaixo dessa quantidade de palavras as tarefas paralelas não são divididas
+    private static final int PARALLEL_THRESHOLD_WORDS = 1 << 14;
+
+    // Caracteres na ordem dos seus códigos de 2 bits
+    private static final char[] NUCLEOTIDES = { 'A', 'C', 'G', 'T' };
+
+    // Valores especiais da tabela de codificação
+    static final int INVALID = -1, AMBIGUOUS = -2;
+
+    // Códigos IUPAC aceitos além de ACGT
+    private static final String IUPAC = "NRYSWKMBDHV";
+
+    // Tabela de codificação: caractere ASCII -> código de 2 bits, INVALID ou AMBIGUOUS
+    private static final byte[] ENCODE = new byte[128];
+
+    /* Tabelas de decodificação: cada byte do conjunto compressado guarda 4
+    nucleotídeos, então para cada um dos 256 valores possíveis guardamos os
+    4 caracteres correspondentes, lado a lado. */
+    private static final char[] DECODE_CHARS = new char[256 * 4];
+    private static final byte[] DECODE_BYTES = new byte[256 * 4];
+
+    static {
+        Arrays.fill( ENCODE, (byte) INVALID );
+        for (char symbol : IUPAC.toCharArray()) {
+            ENCODE[ symbol ] = AMBIGUOUS;
+            ENCODE[ Character.toLowerCase(symbol) ] = AMBIGUOUS;
+        }
+        for (int code = 0; code < NUCLEOTIDES.length; code++) {
+            ENCODE[ NUCLEOTIDES[code] ] = (byte) code;
+            // Para fins de consistência aceitamos também as letras minúsculas
+            ENCODE[ Character.toLowerCase(NUCLEOTIDES[code]) ] = (byte) code;
+        }
+
+        for (int value = 0; value < 256; value++) {
+            for (int j = 0; j < 4; j++) {
+                final char nucleotide = NUCLEOTIDES[ (value >>> (2 * j)) & 0b11 ];
+                DECODE_CHARS[ value * 4 + j ] = nucleotide;
+                DECODE_BYTES[ value * 4 + j ] = (byte) nucleotide;
+            }
+        }
+    }
+
+    // Conjunto de bits, 32 nucleotídeos por palavra
+    private final long[] words;
+    private final int length;
+    // Trechos de bases ambíguas, null quando o gene possui somente ACGT
+    private final AmbiguousRuns ambiguous;
     
     /**
      * @param args the command line arguments
@@ -20,16 +88,40 @@ public class CompressedGene {
         //String gene = args[1];
         String gene = 
                 "TAGGGATTAACCGTTATATATATATAGCCATGGATCGATTATATAGGGATTAACCGTTATAT"
-                + "ATATATAGCCATGGATCGATTATA";
+                + "ATATATAGCCATGGATCGATTATANNNNNNNNNNRYAGCCATGGATC";
         
-        compress( gene );
+        final CompressedGene compressed = compress( gene );
         // Tamanho do conjunto de bits apos a compressao
-        System.out.println("Bits: " + bitSet.length());
-        final String decompressed = decompress();
+        System.out.println("Bits: " + compressed.bitLength());
+        final String decompressed = compressed.decompress();
         
         System.out.println(decompressed);
         System.out.println("O gene original eh igual ao descompressado: " + 
                 gene.equalsIgnoreCase(decompressed) );
+
+        // Acesso aleatório sem descompressão
+        System.out.println("Nucleotideo 10: " + compressed.charAt(10));
+        System.out.println("Trecho 20..40: " + compressed.subSequence(20, 40));
+        System.out.println("4-mer em 5: " + kmerToString(compressed.kmer(5, 4), 4));
+    }
+
+    /**
+     * Compressa o gene recebido, veja {@link #compress(CharSequence)}.
+     *
+     * @param gene sequência de nucleotídeos (ACGT e códigos IUPAC).
+     */
+    public CompressedGene(CharSequence gene) {
+        length = gene.length();
+        words = new long[ wordCount(length) ];
+
+        ambiguous = encodeWords( gene, words, 0, words.length );
+    }
+
+    // Usado internamente quando as palavras já estão codificadas
+    CompressedGene(long[] words, int length, AmbiguousRuns ambiguous) {
+        this.words = words;
+        this.length = length;
+        this.ambiguous = ambiguous == null || ambiguous.size() == 0 ? null : ambiguous;
     }
     
     /**
@@ -38,44 +130,192 @@ public class CompressedGene {
      * por valores binários, ex.: A -> 00.
      * 
      * @param gene recebe uma string correspondente de um gene.
+     * @return o gene compressado.
+     * @throws IllegalArgumentException se o gene possuir caracteres diferentes
+     *         de ACGT e dos códigos IUPAC.
      */
-    private static void compress(String gene){
-        length = gene.length();
+    public static CompressedGene compress(CharSequence gene) {
+        return new CompressedGene( gene );
+    }
         
-        // Reserva a capacidade ideal para todos os bits
-        bitSet = new BitSet( length * 2 );
+    /**
+     * Compressa o gene em paralelo no pool recebido. O gene é dividido em
+     * faixas de palavras inteiras, então cada tarefa escreve somente as suas
+     * palavras e o resultado é idêntico, bit a bit, ao de
+     * {@link #compress(CharSequence)}.
+     *
+     * @param gene sequência de nucleotídeos (ACGT e códigos IUPAC).
+     * @param pool pool onde as tarefas serão executadas.
+     * @return o gene compressado.
+     * @throws IllegalArgumentException se o gene possuir caracteres diferentes
+     *         de ACGT e dos códigos IUPAC.
+     */
+    public static CompressedGene compress(CharSequence gene, ForkJoinPool pool) {
+        final int length = gene.length();
+        final long[] words = new long[ wordCount(length) ];
         
-        // Para fins de consistência convertemos em Upper Case
-        final String upperGene = gene.toUpperCase();
+        // Cada faixa que encontrar bases ambíguas guarda a sua tabela pela posição
+        final Map<Integer, AmbiguousRuns> partial = new ConcurrentSkipListMap<>();
+        pool.invoke( new WordRangeTask( 0, words.length, (from, to) -> {
+            final AmbiguousRuns runs = encodeWords( gene, words, from, to );
+            if( runs != null ) {
+                partial.put( from, runs );
+            }
+        } ) );
         
-        // Convertemos a string para sua representação em bits
-        for (int i = 0; i < length; i++) {
-            final int firstLocation = 2 * i;
-            final int secondLocation = 2 * i + 1;
-            
-            switch( gene.charAt(i) ){
-                case 'A': // Os próximos dois bits são 00
-                    bitSet.set( firstLocation, false );
-                    bitSet.set( secondLocation, false );
-                    break;
-                case 'C': // Os próximos dois bits são 01
-                    bitSet.set( firstLocation, false );
-                    bitSet.set( secondLocation, true );
-                    break;
-                case 'G': // Os próximos dois bits são 10
-                    bitSet.set( firstLocation, true );
-                    bitSet.set( secondLocation, false );
-                    break;
-                case 'T': // Os próximos dois bits são 11
-                    bitSet.set( firstLocation, true );
-                    bitSet.set( secondLocation, true );
-                    break;
-                default:
-                    throw new IllegalArgumentException( "O gene enviado contem "
-                            + "outros caracteres alem dos permitidos - ACGT" );
+        // As tabelas são unidas na ordem das faixas
+        AmbiguousRuns ambiguous = null;
+        for (AmbiguousRuns runs : partial.values()) {
+            if( ambiguous == null ) {
+                ambiguous = runs;
+            } else {
+                ambiguous.append( runs );
             }
         }
         
+        return new CompressedGene( words, length, ambiguous );
+    }
+
+    /**
+     * Convertemos a string para sua representação em bits, uma palavra por vez.
+     * O caminho rápido só acumula os códigos com um OR para saber se algum foi
+     * negativo; somente as palavras com bases ambíguas (ou inválidas) são
+     * codificadas de novo pelo caminho lento.
+     *
+     * @return os trechos ambíguos da faixa, ou null se não houver nenhum.
+     */
+    private static AmbiguousRuns encodeWords(CharSequence gene, long[] words, int fromWord, int toWord) {
+        final int length = gene.length();
+        AmbiguousRuns runs = null;
+
+        for (int word = fromWord; word < toWord; word++) {
+            final int start = word * NUCLEOTIDES_PER_WORD;
+            final int end = Math.min(start + NUCLEOTIDES_PER_WORD, length);
+
+            long packed = 0L;
+            int check = 0;
+            // Percorremos de trás para frente para que o primeiro fique no final
+            for (int i = end - 1; i >= start; i--) {
+                final int code = lookup( gene.charAt(i) );
+                check |= code;
+                packed = packed << 2 | (code & 0b11);
+            }
+
+            if( check < 0 ) {
+                if( runs == null ) {
+                    runs = new AmbiguousRuns();
+                }
+                packed = encodeWord( gene, start, end, runs );
+            }
+            words[word] = packed;
+        }
+
+        return runs;
+    }
+
+    // Ação aplicada a uma faixa de palavras [from, to)
+    private interface WordRange {
+        void apply(int fromWord, int toWord);
+    }
+
+    /**
+     * Divide a faixa de palavras ao meio até ficar abaixo do limite e então
+     * aplica a ação sequencialmente em cada parte.
+     */
+    private static class WordRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromWord, toWord;
+        private final WordRange action;
+
+        WordRangeTask(int fromWord, int toWord, WordRange action) {
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if( toWord - fromWord <= PARALLEL_THRESHOLD_WORDS ) {
+                action.apply( fromWord, toWord );
+                return;
+            }
+
+            final int middle = (fromWord + toWord) >>> 1;
+            invokeAll( new WordRangeTask(fromWord, middle, action),
+                    new WordRangeTask(middle, toWord, action) );
+        }
+    }
+
+    /**
+     * Caminho lento: codifica os nucleotídeos de {@code start} até {@code end}
+     * (exclusivo) em uma única palavra, registrando as bases ambíguas na
+     * tabela e usando o código de A no lugar delas.
+     */
+    static long encodeWord(CharSequence gene, int start, int end, AmbiguousRuns runs) {
+        long word = 0L;
+
+        for (int i = start; i < end; i++) {
+            final char nucleotide = gene.charAt(i);
+            int code = lookup( nucleotide );
+            if( code == AMBIGUOUS ) {
+                runs.add( i, nucleotide );
+                code = 0;
+            } else if( code == INVALID ) {
+                throw invalid( nucleotide );
+            }
+
+            word |= (long) code << (2 * (i - start));
+        }
+
+        return word;
+    }
+
+    // Código de 2 bits de um caractere, INVALID ou AMBIGUOUS
+    static int lookup(char nucleotide) {
+        return nucleotide < ENCODE.length ? ENCODE[nucleotide] : INVALID;
+    }
+
+    static IllegalArgumentException invalid(char nucleotide) {
+        return new IllegalArgumentException( "O gene enviado contem outros "
+                + "caracteres alem dos permitidos - ACGT e IUPAC: " + nucleotide );
+    }
+
+    // Caractere correspondente ao código de 2 bits
+    static char decode(int code) {
+        return NUCLEOTIDES[code];
+    }
+
+    /**
+     * Decodifica uma palavra inteira de 32 nucleotídeos no destino, byte a
+     * byte, consultando a tabela de 4 nucleotídeos por vez.
+     */
+    static void decodeWord(long word, char[] destination, int offset) {
+        for (int b = 0; b < 8; b++) {
+            final int index = ( (int) (word >>> (8 * b)) & 0xFF ) << 2;
+            final int position = offset + 4 * b;
+            destination[ position ] = DECODE_CHARS[ index ];
+            destination[ position + 1 ] = DECODE_CHARS[ index + 1 ];
+            destination[ position + 2 ] = DECODE_CHARS[ index + 2 ];
+            destination[ position + 3 ] = DECODE_CHARS[ index + 3 ];
+        }
+    }
+
+    // Mesma ideia de decodeWord, mas em bytes ASCII
+    static void decodeWord(long word, byte[] destination, int offset) {
+        for (int b = 0; b < 8; b++) {
+            final int index = ( (int) (word >>> (8 * b)) & 0xFF ) << 2;
+            final int position = offset + 4 * b;
+            destination[ position ] = DECODE_BYTES[ index ];
+            destination[ position + 1 ] = DECODE_BYTES[ index + 1 ];
+            destination[ position + 2 ] = DECODE_BYTES[ index + 2 ];
+            destination[ position + 3 ] = DECODE_BYTES[ index + 3 ];
+        }
+    }
+
+    // Quantidade de palavras necessárias para guardar a quantidade de nucleotídeos
+    static int wordCount(long nucleotides) {
+        return (int) ( (nucleotides + NUCLEOTIDES_PER_WORD - 1) / NUCLEOTIDES_PER_WORD );
     }
     
     /**
@@ -85,38 +325,445 @@ public class CompressedGene {
      * 
      * @return retorna o gene original.
      */
-    private static String decompress(){
-        if( bitSet == null ) return "";
+    public String decompress() {
+        final byte[] ascii = new byte[length];
+        decompress( ascii, 0 );
         
-        StringBuilder builder = new StringBuilder( length );
+        return new String( ascii, StandardCharsets.US_ASCII );
+    }
         
-        for (int i = 0; i < (length * 2); i += 2) {
-            final int firstBit = ( bitSet.get(i) ? 1 : 0 );
-            final int secondBit = ( bitSet.get(i + 1) ? 1 : 0 );
+    /**
+     * Descompressa o gene diretamente no array recebido, sem alocações.
+     *
+     * @param destination array que recebe os nucleotídeos.
+     * @param offset posição inicial de escrita.
+     * @throws IndexOutOfBoundsException se o array não tiver espaço para o gene.
+     */
+    public void decompress(char[] destination, int offset) {
+        checkDestination( destination.length, offset );
+        decodeWords( destination, offset, 0, words.length );
+    }
             
-            /* Usando o operador '<<' todos os espaços da esquerda atrás são 
-            substítuidos por 0's, o operador '|' diz que "se os valores dos bits
-            são um 1, então coloque 1", por isso quando se combina 0 com os valores
-            do segundo bit irão retorna-lo.
-            */
-            final int lastBits = firstBit << 1 | secondBit;
+    /**
+     * Versão paralela de {@link #decompress(char[], int)}, cada tarefa
+     * decodifica uma faixa de palavras na sua parte do destino.
+     *
+     * @param destination array que recebe os nucleotídeos.
+     * @param offset posição inicial de escrita.
+     * @param pool pool onde as tarefas serão executadas.
+     * @throws IndexOutOfBoundsException se o array não tiver espaço para o gene.
+     */
+    public void decompress(char[] destination, int offset, ForkJoinPool pool) {
+        checkDestination( destination.length, offset );
+        pool.invoke( new WordRangeTask( 0, words.length,
+                (from, to) -> decodeWords(destination, offset, from, to) ) );
+    }
             
-            switch( lastBits ){
-                case 0b00: // 00 = A
-                    builder.append( 'A' );
-                    break;
-                case 0b01: // 01 = C
-                    builder.append( 'C' );
-                    break;
-                case 0b10: // 10 = G
-                    builder.append( 'G' );
-                    break;
-                case 0b11: // 11 = T
-                    builder.append( 'T' );
-                    break;
+    private void decodeWords(char[] destination, int offset, int fromWord, int toWord) {
+        for (int word = fromWord; word < toWord; word++) {
+            final int start = word * NUCLEOTIDES_PER_WORD;
+            if( start + NUCLEOTIDES_PER_WORD <= length ) {
+                decodeWord( words[word], destination, offset + start );
+                continue;
+            }
+
+            // A última palavra pode estar incompleta
+            for (int i = start; i < length; i++) {
+                destination[ offset + i ] = decode( code(i) );
             }
         }
         
-        return builder.toString();
+        // Restaura as bases ambíguas da faixa
+        if( ambiguous != null ) {
+            final int from = fromWord * NUCLEOTIDES_PER_WORD;
+            ambiguous.overlay( destination, offset + from, from,
+                    Math.min((long) toWord * NUCLEOTIDES_PER_WORD, length) );
+        }
+    }
+
+    /**
+     * Descompressa o gene diretamente no array recebido, em bytes ASCII, sem
+     * alocações.
+     *
+     * @param destination array que recebe os nucleotídeos.
+     * @param offset posição inicial de escrita.
+     * @throws IndexOutOfBoundsException se o array não tiver espaço para o gene.
+     */
+    public void decompress(byte[] destination, int offset) {
+        checkDestination( destination.length, offset );
+        decodeWords( destination, offset, 0, words.length );
+    }
+
+    /**
+     * Versão paralela de {@link #decompress(byte[], int)}.
+     *
+     * @param destination array que recebe os nucleotídeos.
+     * @param offset posição inicial de escrita.
+     * @param pool pool onde as tarefas serão executadas.
+     * @throws IndexOutOfBoundsException se o array não tiver espaço para o gene.
+     */
+    public void decompress(byte[] destination, int offset, ForkJoinPool pool) {
+        checkDestination( destination.length, offset );
+        pool.invoke( new WordRangeTask( 0, words.length,
+                (from, to) -> decodeWords(destination, offset, from, to) ) );
+    }
+
+    /**
+     * Versão paralela de {@link #decompress()}.
+     *
+     * @param pool pool onde as tarefas serão executadas.
+     * @return retorna o gene original.
+     */
+    public String decompress(ForkJoinPool pool) {
+        final byte[] ascii = new byte[length];
+        decompress( ascii, 0, pool );
+
+        return new String( ascii, StandardCharsets.US_ASCII );
+    }
+
+    private void decodeWords(byte[] destination, int offset, int fromWord, int toWord) {
+        for (int word = fromWord; word < toWord; word++) {
+            final int start = word * NUCLEOTIDES_PER_WORD;
+            if( start + NUCLEOTIDES_PER_WORD <= length ) {
+                decodeWord( words[word], destination, offset + start );
+                continue;
+            }
+
+            for (int i = start; i < length; i++) {
+                destination[ offset + i ] = (byte) decode( code(i) );
+            }
+        }
+
+        if( ambiguous != null ) {
+            final int from = fromWord * NUCLEOTIDES_PER_WORD;
+            ambiguous.overlay( destination, offset + from, from,
+                    Math.min((long) toWord * NUCLEOTIDES_PER_WORD, length) );
+        }
+    }
+
+    private void checkDestination(int destinationLength, int offset) {
+        if( offset < 0 || destinationLength - offset < length ) {
+            throw new IndexOutOfBoundsException( "O destino nao comporta "
+                    + length + " nucleotideos a partir de " + offset );
+        }
+    }
+
+    // Código de 2 bits do nucleotídeo na posição i
+    int code(int i) {
+        return (int) ( words[ i / NUCLEOTIDES_PER_WORD ]
+                >>> (2 * (i % NUCLEOTIDES_PER_WORD)) ) & 0b11;
+    }
+
+    /**
+     * Lê {@code count} nucleotídeos (até 32) a partir de {@code shift} bits da
+     * palavra {@code low}, completando com os bits iniciais de {@code high}
+     * quando o trecho atravessa as duas palavras.
+     */
+    static long extract(long low, long high, int shift, int count) {
+        long bits = low >>> shift;
+        if( shift > 0 ) {
+            bits |= high << (Long.SIZE - shift);
+        }
+
+        return count == NUCLEOTIDES_PER_WORD ? bits : bits & ( (1L << (2 * count)) - 1 );
+    }
+
+    // Se o trecho precisa da palavra seguinte à que contém o seu início
+    static boolean crossesWord(int shift, int count) {
+        return shift + 2 * count > Long.SIZE;
+    }
+
+    /**
+     * @param index posição do nucleotídeo.
+     * @return o nucleotídeo na posição, lido diretamente da palavra compressada.
+     * @throws IndexOutOfBoundsException se a posição estiver fora do gene.
+     */
+    @Override
+    public char charAt(int index) {
+        checkRange( index, index + 1 );
+
+        if( ambiguous != null ) {
+            final char symbol = ambiguous.symbolAt( index );
+            if( symbol != 0 ) {
+                return symbol;
+            }
+        }
+
+        return decode( code(index) );
+    }
+
+    /**
+     * @param start posição inicial (inclusiva).
+     * @param end posição final (exclusiva).
+     * @return true se houver alguma base ambígua no trecho.
+     */
+    public boolean isAmbiguous(int start, int end) {
+        checkRange( start, end );
+
+        return ambiguous != null && ambiguous.intersects( start, end );
+    }
+
+    /**
+     * Extrai o trecho como um novo gene compressado, copiando somente as
+     * palavras necessárias (deslocadas para que o trecho comece no bit 0).
+     *
+     * @param start posição inicial (inclusiva).
+     * @param end posição final (exclusiva).
+     * @return o trecho compressado.
+     * @throws IndexOutOfBoundsException se o trecho estiver fora do gene.
+     */
+    @Override
+    public CompressedGene subSequence(int start, int end) {
+        checkRange( start, end );
+
+        final int subLength = end - start;
+        final long[] subWords = new long[ wordCount(subLength) ];
+        for (int word = 0; word < subWords.length; word++) {
+            final int from = start + word * NUCLEOTIDES_PER_WORD;
+            subWords[word] = kmer( from, Math.min(NUCLEOTIDES_PER_WORD, end - from) );
+        }
+
+        return new CompressedGene( subWords, subLength,
+                ambiguous == null ? null : ambiguous.slice(start, end) );
+    }
+
+    /**
+     * Lê o k-mer que começa na posição recebida, tocando no máximo duas
+     * palavras. O resultado segue a mesma ordem de bits do gene: o primeiro
+     * nucleotídeo fica nos 2 bits menos significativos. Bases ambíguas são
+     * lidas como A, use {@link #isAmbiguous(int, int)} para identificá-las.
+     *
+     * @param start posição do primeiro nucleotídeo.
+     * @param k tamanho do k-mer, de 1 a 32.
+     * @return o k-mer compressado em um long.
+     * @throws IndexOutOfBoundsException se o k-mer estiver fora do gene.
+     */
+    public long kmer(int start, int k) {
+        if( k < 1 || k > NUCLEOTIDES_PER_WORD ) {
+            throw new IllegalArgumentException( "O tamanho do k-mer deve estar "
+                    + "entre 1 e " + NUCLEOTIDES_PER_WORD + ": " + k );
+        }
+        checkRange( start, start + k );
+
+        final int word = start / NUCLEOTIDES_PER_WORD;
+        final int shift = 2 * (start % NUCLEOTIDES_PER_WORD);
+
+        return extract( words[word], crossesWord(shift, k) ? words[word + 1] : 0L, shift, k );
+    }
+
+    /**
+     * Converte um k-mer compressado, como o retornado por {@link #kmer(int, int)},
+     * para texto.
+     *
+     * @param kmer o k-mer compressado.
+     * @param k tamanho do k-mer.
+     * @return os nucleotídeos do k-mer.
+     */
+    public static String kmerToString(long kmer, int k) {
+        final char[] nucleotides = new char[k];
+        for (int i = 0; i < k; i++) {
+            nucleotides[i] = decode( (int) (kmer >>> (2 * i)) & 0b11 );
+        }
+
+        return new String( nucleotides );
+    }
+
+    private void checkRange(int start, int end) {
+        if( start < 0 || end > length || start > end ) {
+            throw new IndexOutOfBoundsException( "Trecho [" + start + ", " + end
+                    + ") fora do gene de tamanho " + length );
+        }
+    }
+
+    // Palavra compressada na posição recebida
+    long word(int index) {
+        return words[index];
+    }
+
+    int wordCount() {
+        return words.length;
+    }
+
+    // Tabela de bases ambíguas, null quando o gene possui somente ACGT
+    AmbiguousRuns ambiguousRuns() {
+        return ambiguous;
+    }
+
+    /**
+     * @return quantidade de nucleotídeos do gene.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return quantidade de bits utilizados pelos nucleotídeos.
+     */
+    public long bitLength() {
+        return 2L * length;
+    }
+
+    /**
+     * @return o gene descompressado.
+     */
+    @Override
+    public String toString() {
+        return decompress();
+    }
+
+    /**
+     * Tabela de trechos com bases ambíguas. Cada trecho guarda a posição
+     * inicial, o tamanho e o caractere que se repete, em arrays primitivos
+     * ordenados pela posição, então uma sequência de milhares de N custa um
+     * único trecho. As posições são long para servir também ao
+     * {@link CompressedGeneFile}.
+     */
+    static final class AmbiguousRuns {
+        // Tamanho de cada trecho no formato do arquivo: início, tamanho e caractere
+        static final int RUN_BYTES = 8 + 4 + 1;
+
+        private long[] starts;
+        private int[] lengths;
+        private byte[] symbols;
+        private int size = 0;
+
+        AmbiguousRuns() {
+            this( 8 );
+        }
+
+        private AmbiguousRuns(int capacity) {
+            starts = new long[capacity];
+            lengths = new int[capacity];
+            symbols = new byte[capacity];
+        }
+
+        // Registra a base ambígua, estendendo o último trecho quando possível
+        void add(long position, char nucleotide) {
+            final byte symbol = (byte) Character.toUpperCase( nucleotide );
+            final int last = size - 1;
+
+            if( last >= 0 && symbols[last] == symbol && lengths[last] < Integer.MAX_VALUE
+                    && starts[last] + lengths[last] == position ) {
+                lengths[last]++;
+            } else {
+                addRun( position, 1, symbol );
+            }
+        }
+
+        // Acrescenta os trechos de uma tabela que começa depois desta
+        void append(AmbiguousRuns other) {
+            for (int i = 0; i < other.size; i++) {
+                final int last = size - 1;
+                if( i == 0 && last >= 0 && symbols[last] == other.symbols[0]
+                        && starts[last] + lengths[last] == other.starts[0]
+                        && (long) lengths[last] + other.lengths[0] <= Integer.MAX_VALUE ) {
+                    lengths[last] += other.lengths[0];
+                } else {
+                    addRun( other.starts[i], other.lengths[i], other.symbols[i] );
+                }
+            }
+        }
+
+        private void addRun(long start, int length, byte symbol) {
+            if( size == starts.length ) {
+                starts = Arrays.copyOf( starts, size * 2 );
+                lengths = Arrays.copyOf( lengths, size * 2 );
+                symbols = Arrays.copyOf( symbols, size * 2 );
+            }
+
+            starts[size] = start;
+            lengths[size] = length;
+            symbols[size] = symbol;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long start(int run) {
+            return starts[run];
+        }
+
+        long end(int run) {
+            return starts[run] + lengths[run];
+        }
+
+        // Índice do primeiro trecho que termina depois da posição (busca binária)
+        int firstEndingAfter(long position) {
+            int low = 0;
+            int high = size - 1;
+
+            while( low <= high ) {
+                final int middle = (low + high) >>> 1;
+                if( end(middle) <= position ) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            return low;
+        }
+
+        // Caractere ambíguo na posição, ou 0 se a base for ACGT
+        char symbolAt(long position) {
+            final int run = firstEndingAfter( position );
+
+            return run < size && starts[run] <= position ? (char) symbols[run] : 0;
+        }
+
+        boolean intersects(long from, long to) {
+            final int run = firstEndingAfter( from );
+
+            return from < to && run < size && starts[run] < to;
+        }
+
+        // Escreve as bases ambíguas de [from, to) no destino, que começa em from
+        void overlay(byte[] destination, int offset, long from, long to) {
+            for (int run = firstEndingAfter(from); run < size && starts[run] < to; run++) {
+                final long start = Math.max( starts[run], from );
+                final long end = Math.min( end(run), to );
+                Arrays.fill( destination, (int) (offset + start - from),
+                        (int) (offset + end - from), symbols[run] );
+            }
+        }
+
+        void overlay(char[] destination, int offset, long from, long to) {
+            for (int run = firstEndingAfter(from); run < size && starts[run] < to; run++) {
+                final long start = Math.max( starts[run], from );
+                final long end = Math.min( end(run), to );
+                Arrays.fill( destination, (int) (offset + start - from),
+                        (int) (offset + end - from), (char) symbols[run] );
+            }
+        }
+
+        // Trechos de [from, to) com as posições relativas a from
+        AmbiguousRuns slice(long from, long to) {
+            final AmbiguousRuns slice = new AmbiguousRuns();
+            for (int run = firstEndingAfter(from); run < size && starts[run] < to; run++) {
+                final long start = Math.max( starts[run], from );
+                final long end = Math.min( end(run), to );
+                slice.addRun( start - from, (int) (end - start), symbols[run] );
+            }
+
+            return slice;
+        }
+
+        void write(ByteBuffer buffer) {
+            for (int run = 0; run < size; run++) {
+                buffer.putLong( starts[run] ).putInt( lengths[run] ).put( symbols[run] );
+            }
+        }
+
+        static AmbiguousRuns read(ByteBuffer buffer, int count) {
+            final AmbiguousRuns runs = new AmbiguousRuns( Math.max(count, 1) );
+            for (int run = 0; run < count; run++) {
+                runs.addRun( buffer.getLong(), buffer.getInt(), buffer.get() );
+            }
+
+            return runs;
+        }
     }
 }
@@ -0,0 +1,510 @@
+package chapter01;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Versao em arquivo do {@link CompressedGene}, pensada para genes que nao cabem
+ * na memoria (cromossomos com varios GB). A entrada e lida em janelas mapeadas
+ * em memoria e a saida e escrita em blocos de tamanho fixo, entao o uso do heap
+ * nao depende do tamanho do gene.
+ *
+ * Formato do arquivo (little-endian):
+ * 	- cabecalho de 48 bytes: magic, versao, quantidade de nucleotideos,
+ * 		nucleotideos por bloco, quantidade de blocos, posicao do indice,
+ * 		posicao e quantidade de trechos ambiguos;
+ * 	- blocos com as palavras de 64 bits, 32 nucleotideos por palavra, na mesma
+ * 		ordem de bits do {@link CompressedGene};
+ * 	- indice com a posicao (long) de cada bloco no arquivo;
+ * 	- tabela de trechos de bases ambiguas (N e codigos IUPAC), com inicio,
+ * 		tamanho e caractere de cada trecho.
+ *
+ * Arquivos da versao 1 (cabecalho de 32 bytes, sem a tabela de trechos) ainda
+ * podem ser lidos.
+ *
+ * Depois de aberto, qualquer nucleotideo, trecho ou k-mer pode ser lido direto
+ * das palavras no arquivo (mapeado em segmentos), sem descompressao completa.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class CompressedGeneFile implements Closeable {
+
+	// "2BIT" em ASCII
+	static final int MAGIC = 0x54494232;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 48;
+	private static final int VERSION_1_HEADER_SIZE = 32;
+
+	// Quantidade padrao de nucleotideos por bloco (256 KB compressados)
+	public static final int DEFAULT_CHUNK_NUCLEOTIDES = 1 << 20;
+
+	// Tamanho da janela mapeada do arquivo de entrada
+	private static final long INPUT_WINDOW = 64L << 20;
+
+	// Nucleotideos decodificados por escrita na descompressao
+	private static final int OUTPUT_BUFFER_NUCLEOTIDES = 1 << 16;
+
+	// Os dados sao mapeados em segmentos de 1 GB para o acesso aleatorio
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final FileChannel channel;
+	private final long length;
+	private final int chunkNucleotides;
+	private final long[] chunkOffsets;
+	private final int wordsPerChunk;
+	private final MappedByteBuffer[] segments;
+	private final CompressedGene.AmbiguousRuns ambiguous;
+
+	private CompressedGeneFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = readFully(0, VERSION_1_HEADER_SIZE);
+		int version = header.getInt() == MAGIC ? header.getInt() : -1;
+		if(version != 1 && version != VERSION) {
+			throw new IOException("O arquivo nao eh um gene compressado valido");
+		}
+
+		length = header.getLong();
+		chunkNucleotides = header.getInt();
+		int chunkCount = header.getInt();
+		long indexOffset = header.getLong();
+
+		if(version == VERSION) {
+			ByteBuffer extension = readFully(VERSION_1_HEADER_SIZE, HEADER_SIZE - VERSION_1_HEADER_SIZE);
+			long runsOffset = extension.getLong();
+			int runCount = extension.getInt();
+			ambiguous = runCount == 0 ? null : CompressedGene.AmbiguousRuns.read(
+					readFully(runsOffset, runCount * CompressedGene.AmbiguousRuns.RUN_BYTES), runCount);
+		}else {
+			ambiguous = null;
+		}
+
+		ByteBuffer index = readFully(indexOffset, chunkCount * 8);
+		chunkOffsets = new long[chunkCount];
+		for(int i = 0; i < chunkCount; i++) {
+			chunkOffsets[i] = index.getLong();
+		}
+		wordsPerChunk = chunkNucleotides / CompressedGene.NUCLEOTIDES_PER_WORD;
+
+		/* Como o cabecalho e os blocos tem tamanhos multiplos de 8, nenhuma
+		palavra atravessa o limite entre dois segmentos. */
+		segments = new MappedByteBuffer[(int) ((indexOffset + SEGMENT_MASK) >>> SEGMENT_BITS)];
+		for(int i = 0; i < segments.length; i++) {
+			long start = (long) i << SEGMENT_BITS;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(1L << SEGMENT_BITS, indexOffset - start));
+			segments[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/**
+	 * Abre um arquivo gerado por {@link #compress(Path, Path)} somente para leitura.
+	 *
+	 * @param path caminho do arquivo compressado
+	 * @return o gene compressado em arquivo, que deve ser fechado apos o uso
+	 * @throws IOException se o arquivo nao puder ser lido ou nao estiver no formato esperado
+	 * */
+	public static CompressedGeneFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new CompressedGeneFile(channel);
+		}catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Compressa um arquivo FASTA ou texto puro usando o tamanho de bloco padrao.
+	 *
+	 * @see #compress(Path, Path, int)
+	 * */
+	public static long compress(Path input, Path output) throws IOException {
+		return compress(input, output, DEFAULT_CHUNK_NUCLEOTIDES);
+	}
+
+	/**
+	 * Compressa um arquivo FASTA ou texto puro. Linhas iniciadas por '>' ou ';'
+	 * (cabecalhos e comentarios), quebras de linha e espacos sao ignorados, os
+	 * nucleotideos de todos os registros sao concatenados. Bases ambiguas vao
+	 * para a tabela de trechos, que fica em memoria ate o fim da compressao.
+	 *
+	 * @param input arquivo com o gene
+	 * @param output arquivo compressado que sera criado (ou sobrescrito)
+	 * @param chunkNucleotides nucleotideos por bloco, multiplo de 32
+	 * @return quantidade de nucleotideos compressados
+	 * @throws IOException se houver erro de leitura ou escrita
+	 * @throws IllegalArgumentException se o gene possuir caracteres diferentes de ACGT e IUPAC
+	 * */
+	public static long compress(Path input, Path output, int chunkNucleotides) throws IOException {
+		if(chunkNucleotides <= 0 || chunkNucleotides % CompressedGene.NUCLEOTIDES_PER_WORD != 0) {
+			throw new IllegalArgumentException("O tamanho do bloco deve ser um multiplo de "
+					+ CompressedGene.NUCLEOTIDES_PER_WORD + ": " + chunkNucleotides);
+		}
+
+		try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Encoder encoder = new Encoder(out, chunkNucleotides);
+
+			long size = in.size();
+			for(long position = 0; position < size; position += INPUT_WINDOW) {
+				MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(INPUT_WINDOW, size - position));
+				encoder.accept(window);
+			}
+
+			return encoder.finish();
+		}
+	}
+
+	/**
+	 * Estado da compressao entre as janelas da entrada: a palavra que esta sendo
+	 * montada, o bloco de saida e o estado do leitor de FASTA.
+	 * */
+	private static class Encoder {
+		private final FileChannel out;
+		private final int chunkNucleotides;
+		private final ByteBuffer chunk;
+
+		private long[] chunkOffsets = new long[16];
+		private final CompressedGene.AmbiguousRuns ambiguous = new CompressedGene.AmbiguousRuns();
+		private int chunkCount = 0;
+		private long position = HEADER_SIZE;
+		private long length = 0;
+
+		private long word = 0L;
+		private int shift = 0;
+		private boolean lineStart = true, inHeader = false;
+
+		Encoder(FileChannel out, int chunkNucleotides) {
+			this.out = out;
+			this.chunkNucleotides = chunkNucleotides;
+			this.chunk = ByteBuffer.allocateDirect(chunkNucleotides / 4).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		void accept(ByteBuffer window) throws IOException {
+			while(window.hasRemaining()) {
+				byte b = window.get();
+
+				// Cabecalhos sao ignorados ate a quebra de linha
+				if(inHeader) {
+					if(b == '\n') {
+						inHeader = false;
+						lineStart = true;
+					}
+					continue;
+				}
+
+				if(b == '\n' || b == '\r') {
+					lineStart = true;
+					continue;
+				}
+
+				if(lineStart && (b == '>' || b == ';')) {
+					inHeader = true;
+					continue;
+				}
+
+				lineStart = false;
+				if(b == ' ' || b == '\t') {
+					continue;
+				}
+
+				char nucleotide = (char) (b & 0xFF);
+				int code = CompressedGene.lookup(nucleotide);
+				if(code < 0) {
+					if(code == CompressedGene.INVALID) {
+						throw CompressedGene.invalid(nucleotide);
+					}
+					ambiguous.add(length, nucleotide);
+					code = 0;
+				}
+
+				word |= (long) code << shift;
+				length++;
+				shift += 2;
+				if(shift == Long.SIZE) {
+					putWord();
+				}
+			}
+		}
+
+		private void putWord() throws IOException {
+			chunk.putLong(word);
+			word = 0L;
+			shift = 0;
+
+			if(!chunk.hasRemaining()) {
+				flushChunk();
+			}
+		}
+
+		// Escreve o bloco atual e guarda a sua posicao no indice
+		private void flushChunk() throws IOException {
+			if(chunkCount == chunkOffsets.length) {
+				chunkOffsets = Arrays.copyOf(chunkOffsets, chunkCount * 2);
+			}
+			chunkOffsets[chunkCount++] = position;
+
+			chunk.flip();
+			position += writeFully(out, chunk, position);
+			chunk.clear();
+		}
+
+		// Completa o ultimo bloco, escreve o indice e por fim o cabecalho
+		long finish() throws IOException {
+			if(shift > 0) {
+				putWord();
+			}
+			if(chunk.position() > 0) {
+				flushChunk();
+			}
+
+			long indexOffset = position;
+			ByteBuffer index = ByteBuffer.allocate(chunkCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+			for(int i = 0; i < chunkCount; i++) {
+				index.putLong(chunkOffsets[i]);
+			}
+			index.flip();
+			writeFully(out, index, indexOffset);
+
+			long runsOffset = indexOffset + index.limit();
+			ByteBuffer runs = ByteBuffer.allocate(ambiguous.size() * CompressedGene.AmbiguousRuns.RUN_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			ambiguous.write(runs);
+			runs.flip();
+			writeFully(out, runs, runsOffset);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putLong(length)
+				.putInt(chunkNucleotides).putInt(chunkCount).putLong(indexOffset)
+				.putLong(runsOffset).putInt(ambiguous.size()).putInt(0);
+			header.flip();
+			writeFully(out, header, 0);
+
+			return length;
+		}
+	}
+
+	/**
+	 * Descompressa o gene inteiro no canal recebido, como texto ASCII sem quebras
+	 * de linha. Os blocos sao lidos pelos segmentos mapeados na abertura e
+	 * decodificados em um buffer fixo, entao o uso de memoria nao depende do
+	 * tamanho do gene.
+	 *
+	 * @param out canal de destino
+	 * @throws IOException se houver erro de leitura ou escrita
+	 * */
+	public void decompress(WritableByteChannel out) throws IOException {
+		byte[] decoded = new byte[OUTPUT_BUFFER_NUCLEOTIDES];
+		ByteBuffer output = ByteBuffer.wrap(decoded);
+		int filled = 0;
+		// Posicao no gene do primeiro nucleotideo do buffer
+		long outputStart = 0;
+
+		long remaining = length;
+		for(long offset : chunkOffsets) {
+			int nucleotides = (int) Math.min(chunkNucleotides, remaining);
+			int words = CompressedGene.wordCount(nucleotides);
+			for(int w = 0; w < words; w++) {
+				long position = offset + 8L * w;
+				long word = segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+				int count = Math.min(CompressedGene.NUCLEOTIDES_PER_WORD, nucleotides);
+
+				if(count == CompressedGene.NUCLEOTIDES_PER_WORD) {
+					CompressedGene.decodeWord(word, decoded, filled);
+				}else {
+					// Ultima palavra incompleta
+					for(int i = 0; i < count; i++) {
+						decoded[filled + i] = (byte) CompressedGene.decode((int) (word >>> (2 * i)) & 0b11);
+					}
+				}
+				filled += count;
+				nucleotides -= count;
+
+				if(filled == decoded.length) {
+					write(out, output, outputStart, filled);
+					outputStart += filled;
+					filled = 0;
+				}
+			}
+
+			remaining -= Math.min(chunkNucleotides, remaining);
+		}
+
+		write(out, output, outputStart, filled);
+	}
+
+	// Restaura as bases ambiguas do buffer e escreve no canal
+	private void write(WritableByteChannel out, ByteBuffer output, long outputStart, int filled) throws IOException {
+		if(ambiguous != null) {
+			ambiguous.overlay(output.array(), 0, outputStart, outputStart + filled);
+		}
+
+		output.limit(filled).position(0);
+		while(output.hasRemaining()) {
+			out.write(output);
+		}
+	}
+
+	// Palavra compressada de indice recebido, localizada pelo indice de blocos
+	private long word(long index) {
+		long position = chunkOffsets[(int) (index / wordsPerChunk)] + 8 * (index % wordsPerChunk);
+
+		return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+	}
+
+	/**
+	 * @param index posicao do nucleotideo
+	 * @return o nucleotideo na posicao, lido direto do arquivo
+	 * @throws IndexOutOfBoundsException se a posicao estiver fora do gene
+	 * */
+	public char charAt(long index) {
+		long code = kmer(index, 1);
+		char symbol = ambiguous == null ? 0 : ambiguous.symbolAt(index);
+
+		return symbol != 0 ? symbol : CompressedGene.decode((int) code);
+	}
+
+	/**
+	 * @param start posicao inicial (inclusiva)
+	 * @param end posicao final (exclusiva)
+	 * @return true se houver alguma base ambigua no trecho
+	 * */
+	public boolean isAmbiguous(long start, long end) {
+		checkRange(start, end);
+
+		return ambiguous != null && ambiguous.intersects(start, end);
+	}
+
+	/**
+	 * Extrai um trecho do arquivo como um gene compressado em memoria, lendo
+	 * somente as palavras que o trecho ocupa.
+	 *
+	 * @param start posicao inicial (inclusiva)
+	 * @param end posicao final (exclusiva)
+	 * @return o trecho compressado
+	 * @throws IndexOutOfBoundsException se o trecho estiver fora do gene
+	 * @throws IllegalArgumentException se o trecho nao couber em um {@link CompressedGene}
+	 * */
+	public CompressedGene subSequence(long start, long end) {
+		checkRange(start, end);
+		if(end - start > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Trecho muito grande para a memoria: " + (end - start));
+		}
+
+		int subLength = (int) (end - start);
+		long[] subWords = new long[CompressedGene.wordCount(subLength)];
+		for(int word = 0; word < subWords.length; word++) {
+			long from = start + (long) word * CompressedGene.NUCLEOTIDES_PER_WORD;
+			subWords[word] = kmer(from, (int) Math.min(CompressedGene.NUCLEOTIDES_PER_WORD, end - from));
+		}
+
+		return new CompressedGene(subWords, subLength,
+				ambiguous == null ? null : ambiguous.slice(start, end));
+	}
+
+	/**
+	 * Le o k-mer que comeca na posicao recebida, com a mesma ordem de bits de
+	 * {@link CompressedGene#kmer(int, int)}, bases ambiguas sao lidas como A.
+	 *
+	 * @param start posicao do primeiro nucleotideo
+	 * @param k tamanho do k-mer, de 1 a 32
+	 * @return o k-mer compressado em um long
+	 * @throws IndexOutOfBoundsException se o k-mer estiver fora do gene
+	 * */
+	public long kmer(long start, int k) {
+		if(k < 1 || k > CompressedGene.NUCLEOTIDES_PER_WORD) {
+			throw new IllegalArgumentException("O tamanho do k-mer deve estar entre 1 e "
+					+ CompressedGene.NUCLEOTIDES_PER_WORD + ": " + k);
+		}
+		checkRange(start, start + k);
+
+		long word = start / CompressedGene.NUCLEOTIDES_PER_WORD;
+		int shift = 2 * (int) (start % CompressedGene.NUCLEOTIDES_PER_WORD);
+
+		return CompressedGene.extract(word(word),
+				CompressedGene.crossesWord(shift, k) ? word(word + 1) : 0L, shift, k);
+	}
+
+	private void checkRange(long start, long end) {
+		if(start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Trecho [" + start + ", " + end
+					+ ") fora do gene de tamanho " + length);
+		}
+	}
+
+	/**
+	 * @return quantidade de nucleotideos do gene.
+	 * */
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer readFully(long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Fim inesperado do arquivo compressado");
+			}
+		}
+		buffer.flip();
+
+		return buffer;
+	}
+
+	private static int writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+		int written = 0;
+		while(buffer.hasRemaining()) {
+			written += out.write(buffer, position + written);
+		}
+
+		return written;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String fasta = ">gene de exemplo\n"
+				+ "TAGGGATTAACCGTTATATATATATAGCCATGGATCGATTATATAGGGATTAACCGTTATAT\n"
+				+ "ATATATAGCCATGGATCGATTATANNNNNNNNNNRYAGCCATGGATC\n";
+
+		Path input = Files.createTempFile("gene", ".fasta");
+		Path output = Files.createTempFile("gene", ".2bit");
+		try {
+			Files.write(input, fasta.getBytes(StandardCharsets.US_ASCII));
+			System.out.println("Nucleotideos compressados: " + compress(input, output));
+			System.out.println("Tamanho do arquivo compressado: " + Files.size(output));
+
+			try(CompressedGeneFile gene = open(output)) {
+				gene.decompress(Channels.newChannel(System.out));
+				System.out.println();
+
+				// Acesso aleatorio direto no arquivo
+				System.out.println("Nucleotideo 10: " + gene.charAt(10));
+				System.out.println("Trecho 20..40: " + gene.subSequence(20, 40));
+			}
+		}finally {
+			Files.deleteIfExists(input);
+			Files.deleteIfExists(output);
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package chapter01;
+
+import java.util.Arrays;
+
+/**
+ * Estatisticas calculadas direto nas palavras de 2 bits de um
+ * {@link CompressedGene}, sem descompressao e sem criar strings.
+ *
+ * Com A -> 00, C -> 01, G -> 10 e T -> 11, cada base pode ser contada com
+ * operacoes de bits sobre a palavra inteira: separamos o bit alto (hi) e o bit
+ * baixo (lo) de cada par e contamos os pares com Long.bitCount:
+ * 	- C e G sao os pares com hi != lo, ou seja, hi ^ lo;
+ * 	- A = ~hi & ~lo, C = ~hi & lo, G = hi & ~lo e T = hi & lo.
+ *
+ * Bases ambiguas (N e codigos IUPAC) estao no corpo compressado como A, por isso
+ * sao descontadas de A e os k-mers que passam por elas sao ignorados.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class CompressedGeneStatistics {
+
+	// Bit baixo de cada par de bits da palavra
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	// Indices dos arrays de contagem
+	public static final int A = 0, C = 1, G = 2, T = 3;
+
+	// Maior k para o qual a contagem densa (um array de 4^k posicoes) e aceita
+	public static final int MAX_DENSE_K = 13;
+
+	private CompressedGeneStatistics() {
+	}
+
+	// Mascara com os pares das bases validas de uma palavra com count bases
+	private static long validMask(int count) {
+		return count == CompressedGene.NUCLEOTIDES_PER_WORD ? LOW_BITS : LOW_BITS & ((1L << (2 * count)) - 1);
+	}
+
+	// Quantidade de bases da palavra, a ultima palavra pode estar incompleta
+	private static int basesInWord(CompressedGene gene, int word) {
+		return Math.min(CompressedGene.NUCLEOTIDES_PER_WORD,
+				gene.length() - word * CompressedGene.NUCLEOTIDES_PER_WORD);
+	}
+
+	/**
+	 * Conta as bases C e G do gene com um popcount por palavra.
+	 *
+	 * @param gene o gene compressado
+	 * @return quantidade de C e G
+	 * */
+	public static long gcCount(CompressedGene gene) {
+		long gc = 0;
+		for(int word = 0; word < gene.wordCount(); word++) {
+			long bits = gene.word(word);
+			// O bit baixo de cada par fica 1 quando hi e lo sao diferentes (C ou G)
+			gc += Long.bitCount((bits ^ (bits >>> 1)) & validMask(basesInWord(gene, word)));
+		}
+
+		return gc;
+	}
+
+	/**
+	 * @param gene o gene compressado
+	 * @return fracao de C e G entre as bases ACGT, desconsiderando as ambiguas
+	 * */
+	public static double gcContent(CompressedGene gene) {
+		long acgt = gene.length() - ambiguousCount(gene, 0, gene.length());
+
+		return acgt == 0 ? 0.0 : (double) gcCount(gene) / acgt;
+	}
+
+	/**
+	 * Conta cada base do gene.
+	 *
+	 * @param gene o gene compressado
+	 * @return array com as contagens, indexado por {@link #A}, {@link #C}, {@link #G} e {@link #T}
+	 * */
+	public static long[] nucleotideCounts(CompressedGene gene) {
+		long[] counts = new long[4];
+		addCounts(gene, 0, gene.wordCount(), counts, 0);
+		counts[A] -= ambiguousCount(gene, 0, gene.length());
+
+		return counts;
+	}
+
+	/**
+	 * Resumo por blocos: as contagens de A, C, G e T de cada bloco de
+	 * {@code blockSize} bases, lado a lado em um unico array, ou seja, a
+	 * contagem da base b no bloco i fica em {@code counts[4 * i + b]}.
+	 *
+	 * @param gene o gene compressado
+	 * @param blockSize bases por bloco, multiplo de 32
+	 * @return as contagens de todos os blocos
+	 * */
+	public static int[] blockCounts(CompressedGene gene, int blockSize) {
+		if(blockSize <= 0 || blockSize % CompressedGene.NUCLEOTIDES_PER_WORD != 0) {
+			throw new IllegalArgumentException("O tamanho do bloco deve ser um multiplo de "
+					+ CompressedGene.NUCLEOTIDES_PER_WORD + ": " + blockSize);
+		}
+
+		int wordsPerBlock = blockSize / CompressedGene.NUCLEOTIDES_PER_WORD;
+		int blocks = (gene.length() + blockSize - 1) / blockSize;
+		int[] counts = new int[4 * blocks];
+		long[] blockCounts = new long[4];
+
+		for(int block = 0; block < blocks; block++) {
+			Arrays.fill(blockCounts, 0);
+			int fromWord = block * wordsPerBlock;
+			addCounts(gene, fromWord, Math.min(fromWord + wordsPerBlock, gene.wordCount()), blockCounts, 0);
+
+			int from = block * blockSize;
+			blockCounts[A] -= ambiguousCount(gene, from, Math.min(from + blockSize, gene.length()));
+			for(int base = A; base <= T; base++) {
+				counts[4 * block + base] = (int) blockCounts[base];
+			}
+		}
+
+		return counts;
+	}
+
+	// Soma as contagens das palavras [fromWord, toWord) em counts[offset..offset + 3]
+	private static void addCounts(CompressedGene gene, int fromWord, int toWord, long[] counts, int offset) {
+		for(int word = fromWord; word < toWord; word++) {
+			long bits = gene.word(word);
+			long valid = validMask(basesInWord(gene, word));
+			long hi = (bits >>> 1) & valid;
+			long lo = bits & valid;
+
+			counts[offset + A] += Long.bitCount(~hi & ~lo & valid);
+			counts[offset + C] += Long.bitCount(~hi & lo);
+			counts[offset + G] += Long.bitCount(hi & ~lo);
+			counts[offset + T] += Long.bitCount(hi & lo);
+		}
+	}
+
+	// Quantidade de bases ambiguas em [from, to)
+	private static long ambiguousCount(CompressedGene gene, long from, long to) {
+		CompressedGene.AmbiguousRuns runs = gene.ambiguousRuns();
+		if(runs == null) {
+			return 0;
+		}
+
+		long count = 0;
+		for(int run = runs.firstEndingAfter(from); run < runs.size() && runs.start(run) < to; run++) {
+			count += Math.min(runs.end(run), to) - Math.max(runs.start(run), from);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Contagem densa de k-mers: o proprio k-mer compressado (mesma ordem de bits
+	 * de {@link CompressedGene#kmer(int, int)}) e o indice do array.
+	 *
+	 * @param gene o gene compressado
+	 * @param k tamanho do k-mer, de 1 a {@link #MAX_DENSE_K}
+	 * @return array com 4^k contagens
+	 * */
+	public static long[] countKmersDense(CompressedGene gene, int k) {
+		if(k < 1 || k > MAX_DENSE_K) {
+			throw new IllegalArgumentException("O tamanho do k-mer deve estar entre 1 e " + MAX_DENSE_K + ": " + k);
+		}
+
+		long[] counts = new long[1 << (2 * k)];
+		forEachKmer(gene, k, kmer -> counts[(int) kmer]++);
+
+		return counts;
+	}
+
+	/**
+	 * Contagem de k-mers em um mapa de chaves e valores primitivos, para k ate 32.
+	 *
+	 * @param gene o gene compressado
+	 * @param k tamanho do k-mer, de 1 a 32
+	 * @return mapa do k-mer compressado para a sua quantidade
+	 * */
+	public static KmerCounts countKmers(CompressedGene gene, int k) {
+		if(k < 1 || k > CompressedGene.NUCLEOTIDES_PER_WORD) {
+			throw new IllegalArgumentException("O tamanho do k-mer deve estar entre 1 e "
+					+ CompressedGene.NUCLEOTIDES_PER_WORD + ": " + k);
+		}
+
+		KmerCounts counts = new KmerCounts();
+		forEachKmer(gene, k, counts::increment);
+
+		return counts;
+	}
+
+	private interface KmerAction {
+		void accept(long kmer);
+	}
+
+	/**
+	 * Percorre todos os k-mers com uma janela deslizante: a cada base o k-mer
+	 * anterior e deslocado 2 bits e a nova base entra nos bits mais altos. A
+	 * janela e reiniciada ao passar por uma base ambigua.
+	 * */
+	private static void forEachKmer(CompressedGene gene, int k, KmerAction action) {
+		CompressedGene.AmbiguousRuns runs = gene.ambiguousRuns();
+		int run = 0;
+		long nextAmbiguous = runs == null || runs.size() == 0 ? Long.MAX_VALUE : runs.start(0);
+
+		int highShift = 2 * (k - 1);
+		long kmer = 0L;
+		int valid = 0;
+
+		for(int word = 0; word < gene.wordCount(); word++) {
+			long bits = gene.word(word);
+			int base = word * CompressedGene.NUCLEOTIDES_PER_WORD;
+			int count = basesInWord(gene, word);
+
+			for(int j = 0; j < count; j++) {
+				int position = base + j;
+				if(position >= nextAmbiguous) {
+					// Pula o trecho ambiguo inteiro dentro desta palavra
+					if(position < runs.end(run)) {
+						valid = 0;
+						continue;
+					}
+					run++;
+					nextAmbiguous = run < runs.size() ? runs.start(run) : Long.MAX_VALUE;
+					if(position >= nextAmbiguous) {
+						valid = 0;
+						continue;
+					}
+				}
+
+				kmer = (kmer >>> 2) | (((bits >>> (2 * j)) & 0b11) << highShift);
+				if(++valid >= k) {
+					action.accept(kmer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Mapa de k-mer (long) para contagem (long) com enderecamento aberto e
+	 * sondagem linear, sem objetos por entrada. Uma posicao com contagem zero
+	 * esta vazia, ja que toda chave inserida tem pelo menos uma ocorrencia.
+	 * */
+	public static class KmerCounts {
+		private long[] keys = new long[1024];
+		private long[] counts = new long[1024];
+		private int size = 0;
+
+		// Espalha os bits da chave (finalizador do MurmurHash3)
+		private static int slot(long key, int mask) {
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			key *= 0xc4ceb9fe1a85ec53L;
+			key ^= key >>> 33;
+
+			return (int) key & mask;
+		}
+
+		void increment(long key) {
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while(counts[i] != 0) {
+				if(keys[i] == key) {
+					counts[i]++;
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+
+			keys[i] = key;
+			counts[i] = 1;
+			// Mantem a ocupacao abaixo de 50%
+			if(++size * 2 > keys.length) {
+				resize();
+			}
+		}
+
+		private void resize() {
+			long[] oldKeys = keys, oldCounts = counts;
+			keys = new long[oldKeys.length * 2];
+			counts = new long[oldCounts.length * 2];
+			int mask = keys.length - 1;
+
+			for(int j = 0; j < oldKeys.length; j++) {
+				if(oldCounts[j] == 0) {
+					continue;
+				}
+				int i = slot(oldKeys[j], mask);
+				while(counts[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				counts[i] = oldCounts[j];
+			}
+		}
+
+		/**
+		 * @param kmer o k-mer compressado
+		 * @return quantidade de ocorrencias, zero se nao ocorrer
+		 * */
+		public long get(long kmer) {
+			int mask = keys.length - 1;
+			for(int i = slot(kmer, mask); counts[i] != 0; i = (i + 1) & mask) {
+				if(keys[i] == kmer) {
+					return counts[i];
+				}
+			}
+
+			return 0;
+		}
+
+		/**
+		 * @return quantidade de k-mers distintos
+		 * */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Percorre os k-mers distintos e suas contagens, sem ordem definida.
+		 * */
+		public void forEach(KmerCountConsumer consumer) {
+			for(int i = 0; i < keys.length; i++) {
+				if(counts[i] != 0) {
+					consumer.accept(keys[i], counts[i]);
+				}
+			}
+		}
+	}
+
+	public interface KmerCountConsumer {
+		void accept(long kmer, long count);
+	}
+
+	public static void main(String[] args) {
+		CompressedGene gene = CompressedGene.compress(
+				"TAGGGATTAACCGTTATATATATATAGCCATGGATCGATTATATAGGGATTAACCGTTATAT"
+				+ "ATATATAGCCATGGATCGATTATANNNNNNNNNNRYAGCCATGGATC");
+
+		long[] counts = nucleotideCounts(gene);
+		System.out.println("A: " + counts[A] + ", C: " + counts[C] + ", G: " + counts[G] + ", T: " + counts[T]);
+		System.out.println("Conteudo GC: " + gcContent(gene));
+
+		int[] blocks = blockCounts(gene, 32);
+		for(int block = 0; block < blocks.length / 4; block++) {
+			System.out.println("Bloco " + block + ": " + Arrays.toString(Arrays.copyOfRange(blocks, 4 * block, 4 * block + 4)));
+		}
+
+		long[] dimers = countKmersDense(gene, 2);
+		for(int kmer = 0; kmer < dimers.length; kmer++) {
+			System.out.println(CompressedGene.kmerToString(kmer, 2) + ": " + dimers[kmer]);
+		}
+
+		KmerCounts kmers = countKmers(gene, 20);
+		System.out.println("20-mers distintos: " + kmers.size());
+		long tata = gene.kmer(20, 20);
+		System.out.println(CompressedGene.kmerToString(tata, 20) + ": " + kmers.get(tata));
+	}
+}
@@ -0,0 +1,532 @@
+package chapter01;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Torres de hanoi a partir de qualquer configuracao ate qualquer outra.
+ *
+ * Como os discos de uma torre estao sempre ordenados, uma configuracao fica
+ * determinada pela torre de cada disco, e qualquer atribuicao de torres e
+ * valida. A configuracao e compactada em um long com um campo de
+ * {@link #bits()} bits por disco (o disco 0, o menor, nos bits mais baixos), ou
+ * seja, em base 2^bits.
+ *
+ * Com tres torres o menor caminho e calculado direto: o maior disco fora do
+ * lugar se move uma vez (os menores vao antes para a terceira torre) ou duas
+ * vezes (passando pela terceira torre), e basta comparar as duas opcoes. Com
+ * mais torres e feita uma busca em largura bidirecional, com os sucessores
+ * gerados como no {@code chapter02.GenericSearch}, mas com estados long e
+ * tabelas de primitivos no lugar dos Node.
+ *
+ * Os movimentos sao compactados como no {@link HanoiSolver#pack(int, int, int)}.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class HanoiConfiguration {
+
+	// Bits livres no topo do long, para que nenhum estado seja igual ao EMPTY
+	private static final int STATE_BITS = 62;
+
+	private final int towers;
+	private final int discs;
+	private final int bits;
+	private final long mask;
+
+	/**
+	 * @param towers quantidade de torres, pelo menos 3
+	 * @param discs quantidade de discos, ate 62 / bits()
+	 * */
+	public HanoiConfiguration(int towers, int discs) {
+		if(towers < 3 || towers > 256) {
+			throw new IllegalArgumentException("A quantidade de torres deve estar entre 3 e 256: " + towers);
+		}
+
+		this.towers = towers;
+		this.bits = 32 - Integer.numberOfLeadingZeros(towers - 1);
+		this.mask = (1L << bits) - 1;
+		if(discs < 0 || discs * bits > STATE_BITS) {
+			throw new IllegalArgumentException("Com " + towers + " torres cabem no maximo " + STATE_BITS / bits + " discos: " + discs);
+		}
+		this.discs = discs;
+	}
+
+	public int towers() {
+		return towers;
+	}
+
+	public int discs() {
+		return discs;
+	}
+
+	public int bits() {
+		return bits;
+	}
+
+	/**
+	 * @param towerOfDisc torre de cada disco, do menor para o maior
+	 * @return a configuracao compactada
+	 * */
+	public long encode(int... towerOfDisc) {
+		if(towerOfDisc.length != discs) {
+			throw new IllegalArgumentException("Esperadas " + discs + " torres, recebidas " + towerOfDisc.length);
+		}
+
+		long state = 0;
+		for(int disc = 0; disc < discs; disc++) {
+			state = with(state, disc, towerOfDisc[disc]);
+		}
+		return state;
+	}
+
+	/**
+	 * @return configuracao com todos os discos na mesma torre
+	 * */
+	public long perfect(int tower) {
+		long state = 0;
+		for(int disc = 0; disc < discs; disc++) {
+			state = with(state, disc, tower);
+		}
+		return state;
+	}
+
+	public int[] decode(long state) {
+		int[] towerOfDisc = new int[discs];
+		for(int disc = 0; disc < discs; disc++) {
+			towerOfDisc[disc] = tower(state, disc);
+		}
+		return towerOfDisc;
+	}
+
+	public int tower(long state, int disc) {
+		return (int) ((state >>> (disc * bits)) & mask);
+	}
+
+	public long with(long state, int disc, int tower) {
+		if(tower < 0 || tower >= towers) {
+			throw new IllegalArgumentException("Torre invalida: " + tower);
+		}
+		int shift = disc * bits;
+		return (state & ~(mask << shift)) | ((long) tower << shift);
+	}
+
+	/**
+	 * Gera as configuracoes alcancaveis com um movimento: o disco do topo de
+	 * cada torre pode ir para qualquer torre vazia ou com o topo maior.
+	 *
+	 * @param state configuracao atual
+	 * @param consumer recebe cada sucessor
+	 * */
+	public void successors(long state, LongConsumer consumer) {
+		// Topo de cada torre: o primeiro disco encontrado, do menor para o maior
+		int[] top = new int[towers];
+		Arrays.fill(top, discs);
+		int seen = 0;
+		for(int disc = 0; disc < discs && seen < towers; disc++) {
+			int tower = tower(state, disc);
+			if(top[tower] == discs) {
+				top[tower] = disc;
+				seen++;
+			}
+		}
+
+		for(int from = 0; from < towers; from++) {
+			int disc = top[from];
+			if(disc == discs) {
+				continue;
+			}
+
+			int shift = disc * bits;
+			long cleared = state & ~(mask << shift);
+			for(int to = 0; to < towers; to++) {
+				if(to != from && top[to] > disc) {
+					consumer.accept(cleared | ((long) to << shift));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return quantidade minima de movimentos entre as configuracoes
+	 * */
+	public long distance(long start, long goal) {
+		checkState(start);
+		checkState(goal);
+		if(towers == 3) {
+			return distance3(start, goal);
+		}
+		return solveSearch(start, goal).length;
+	}
+
+	/**
+	 * Calcula o menor caminho entre duas configuracoes.
+	 *
+	 * @param start configuracao inicial
+	 * @param goal configuracao final
+	 * @return os movimentos compactados, em ordem
+	 * */
+	public int[] solve(long start, long goal) {
+		checkState(start);
+		checkState(goal);
+		if(towers == 3) {
+			return solve3(start, goal);
+		}
+		return solveSearch(start, goal);
+	}
+
+	// Rejeita bits acima do ultimo disco e torres que nao existem
+	private void checkState(long state) {
+		if(state >>> (discs * bits) != 0) {
+			throw new IllegalArgumentException("Configuracao com bits alem do disco " + (discs - 1) + ": " + Long.toBinaryString(state));
+		}
+		for(int disc = 0; disc < discs; disc++) {
+			if(tower(state, disc) >= towers) {
+				throw new IllegalArgumentException("Torre invalida para o disco " + disc + ": " + tower(state, disc));
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// Tres torres
+
+	private static int third(int a, int b) {
+		return 3 - a - b;
+	}
+
+	// Maior disco (ate o disco d) que difere entre as configuracoes, ou -1
+	private int largestDifferent(long a, long b, int d) {
+		long diff = a ^ b;
+		if(d + 1 < discs) {
+			diff &= (1L << ((d + 1) * bits)) - 1;
+		}
+		return diff == 0 ? -1 : (63 - Long.numberOfLeadingZeros(diff)) / bits;
+	}
+
+	// Movimentos para juntar os discos 0..d na torre: o maior fora dela vai direto
+	private long gatherCount(long state, int d, int tower) {
+		long count = 0;
+		for(int disc = d; disc >= 0; disc--) {
+			int current = tower(state, disc);
+			if(current != tower) {
+				// Os menores vao para a terceira torre, o disco se move e os menores voltam (2^disc - 1)
+				count += 1L << disc;
+				tower = third(current, tower);
+			}
+		}
+		return count;
+	}
+
+	private long distance3(long start, long goal) {
+		int d = largestDifferent(start, goal, discs - 1);
+		if(d < 0) {
+			return 0;
+		}
+
+		int a = tower(start, d), b = tower(goal, d), c = third(a, b);
+		// Maior disco se move uma vez: a -> b com os menores na terceira torre
+		long once = gatherCount(start, d - 1, c) + 1 + gatherCount(goal, d - 1, c);
+		// Ou duas vezes: a -> c, os menores vao de b para a, c -> b
+		long twice = gatherCount(start, d - 1, b) + 2 + ((1L << d) - 1) + gatherCount(goal, d - 1, a);
+
+		return Math.min(once, twice);
+	}
+
+	private int[] solve3(long start, long goal) {
+		long count = distance3(start, goal);
+		if(count > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Caminho com movimentos demais para um array: " + count);
+		}
+
+		Moves moves = new Moves((int) count);
+		int d = largestDifferent(start, goal, discs - 1);
+		if(d < 0) {
+			return moves.toArray();
+		}
+
+		int a = tower(start, d), b = tower(goal, d), c = third(a, b);
+		long once = gatherCount(start, d - 1, c) + 1 + gatherCount(goal, d - 1, c);
+		if(once == count) {
+			gather(start, d - 1, c, moves);
+			moves.add(HanoiSolver.pack(d, a, b));
+			ungather(goal, d - 1, c, moves);
+		}else {
+			gather(start, d - 1, b, moves);
+			moves.add(HanoiSolver.pack(d, a, c));
+			transfer(d, b, a, moves);
+			moves.add(HanoiSolver.pack(d, c, b));
+			ungather(goal, d - 1, a, moves);
+		}
+
+		return moves.toArray();
+	}
+
+	// Junta os discos 0..d na torre, gerando os movimentos
+	private void gather(long state, int d, int tower, Moves moves) {
+		for(int disc = d; disc >= 0; disc--) {
+			int current = tower(state, disc);
+			if(current != tower) {
+				int via = third(current, tower);
+				gather(state, disc - 1, via, moves);
+				moves.add(HanoiSolver.pack(disc, current, tower));
+				transfer(disc, via, tower, moves);
+				return;
+			}
+		}
+	}
+
+	// Caminho inverso do gather: da torre com os discos 0..d ate a configuracao
+	private void ungather(long state, int d, int tower, Moves moves) {
+		int from = moves.size();
+		gather(state, d, tower, moves);
+		moves.reverse(from);
+	}
+
+	// Move a pilha com os discos 0..n-1 de uma torre para outra
+	private void transfer(int n, int from, int to, Moves moves) {
+		int[] map = {from, third(from, to), to};
+		long count = HanoiSolver.moveCount(n);
+		for(long i = 0; i < count; i++) {
+			int move = HanoiSolver.move(n, i);
+			moves.add(HanoiSolver.pack(HanoiSolver.disc(move), map[HanoiSolver.from(move)], map[HanoiSolver.to(move)]));
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// Mais torres: busca em largura bidirecional
+
+	private int[] solveSearch(long start, long goal) {
+		if(start == goal) {
+			return new int[0];
+		}
+
+		// Pai de cada configuracao visitada a partir de cada lado
+		LongLongMap forward = new LongLongMap();
+		LongLongMap backward = new LongLongMap();
+		forward.put(start, start);
+		backward.put(goal, goal);
+
+		long[] forwardFrontier = {start};
+		long[] backwardFrontier = {goal};
+		int forwardDepth = 0, backwardDepth = 0;
+
+		while(forwardFrontier.length > 0 && backwardFrontier.length > 0) {
+			// Expande o lado com a menor fronteira
+			boolean isForward = forwardFrontier.length <= backwardFrontier.length;
+			LongLongMap visited = isForward ? forward : backward;
+			LongLongMap other = isForward ? backward : forward;
+			long[] frontier = isForward ? forwardFrontier : backwardFrontier;
+			int depth = (isForward ? forwardDepth : backwardDepth) + 1;
+
+			long[] meeting = {0, Long.MAX_VALUE};
+			LongBuffer next = new LongBuffer();
+			for(long state : frontier) {
+				successors(state, successor -> {
+					if(visited.containsKey(successor)) {
+						return;
+					}
+					visited.put(successor, state);
+					next.add(successor);
+
+					if(other.containsKey(successor)) {
+						long total = depth + depthOf(other, successor);
+						if(total < meeting[1]) {
+							meeting[0] = successor;
+							meeting[1] = total;
+						}
+					}
+				});
+			}
+
+			if(meeting[1] != Long.MAX_VALUE) {
+				return path(forward, backward, meeting[0]);
+			}
+
+			if(isForward) {
+				forwardFrontier = next.toArray();
+				forwardDepth = depth;
+			}else {
+				backwardFrontier = next.toArray();
+				backwardDepth = depth;
+			}
+		}
+
+		throw new IllegalStateException("Configuracao final inalcancavel");
+	}
+
+	// Distancia ate a raiz seguindo os pais
+	private static int depthOf(LongLongMap parents, long state) {
+		int depth = 0;
+		for(long parent = parents.get(state); parent != state; state = parent, parent = parents.get(state)) {
+			depth++;
+		}
+		return depth;
+	}
+
+	private int[] path(LongLongMap forward, LongLongMap backward, long meeting) {
+		Moves moves = new Moves(16);
+
+		// Do encontro ate o inicio; o reverse() inverte a ordem e o sentido dos movimentos
+		for(long state = meeting, parent = forward.get(state); parent != state; state = parent, parent = forward.get(state)) {
+			moves.add(moveBetween(state, parent));
+		}
+		moves.reverse(0);
+
+		// Do encontro ate o final
+		for(long state = meeting, parent = backward.get(state); parent != state; state = parent, parent = backward.get(state)) {
+			moves.add(moveBetween(state, parent));
+		}
+
+		return moves.toArray();
+	}
+
+	// Movimento entre duas configuracoes vizinhas: o unico disco com torre diferente
+	private int moveBetween(long from, long to) {
+		int disc = (63 - Long.numberOfLeadingZeros(from ^ to)) / bits;
+		return HanoiSolver.pack(disc, tower(from, disc), tower(to, disc));
+	}
+
+	// ------------------------------------------------------------------
+	// Estruturas de primitivos
+
+	// Lista de movimentos compactados que cresce sob demanda
+	private static class Moves{
+		private int[] data;
+		private int size = 0;
+
+		Moves(int capacity) {
+			data = new int[Math.max(capacity, 1)];
+		}
+
+		void add(int move) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			data[size++] = move;
+		}
+
+		int size() {
+			return size;
+		}
+
+		// Inverte a ordem dos movimentos a partir de from e troca origem e destino
+		void reverse(int from) {
+			for(int i = from, j = size - 1; i <= j; i++, j--) {
+				int left = invert(data[i]);
+				data[i] = invert(data[j]);
+				data[j] = left;
+			}
+		}
+
+		private static int invert(int move) {
+			return HanoiSolver.pack(HanoiSolver.disc(move), HanoiSolver.to(move), HanoiSolver.from(move));
+		}
+
+		int[] toArray() {
+			return size == data.length ? data : Arrays.copyOf(data, size);
+		}
+	}
+
+	private static class LongBuffer{
+		private long[] data = new long[16];
+		private int size = 0;
+
+		void add(long value) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			data[size++] = value;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+
+	/**
+	 * Tabela de enderecamento aberto de long para long. Os estados nunca usam o
+	 * bit mais alto, entao EMPTY marca as posicoes livres.
+	 * */
+	private static class LongLongMap{
+		private static final long EMPTY = -1L;
+
+		private long[] keys = new long[16];
+		private long[] values = new long[16];
+		private int size = 0;
+
+		LongLongMap() {
+			Arrays.fill(keys, EMPTY);
+		}
+
+		private static int hash(long key) {
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int) key;
+		}
+
+		private int slot(long key) {
+			int m = keys.length - 1;
+			int i = hash(key) & m;
+			while(keys[i] != EMPTY && keys[i] != key) {
+				i = (i + 1) & m;
+			}
+			return i;
+		}
+
+		boolean containsKey(long key) {
+			return keys[slot(key)] == key;
+		}
+
+		long get(long key) {
+			return values[slot(key)];
+		}
+
+		void put(long key, long value) {
+			int i = slot(key);
+			if(keys[i] == EMPTY) {
+				keys[i] = key;
+				size++;
+				if(size * 2 > keys.length) {
+					values[i] = value;
+					grow();
+					return;
+				}
+			}
+			values[i] = value;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys, oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new long[oldValues.length * 2];
+			Arrays.fill(keys, EMPTY);
+			for(int i = 0; i < oldKeys.length; i++) {
+				if(oldKeys[i] != EMPTY) {
+					int j = slot(oldKeys[i]);
+					keys[j] = oldKeys[i];
+					values[j] = oldValues[i];
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		HanoiConfiguration three = new HanoiConfiguration(3, 4);
+		long start = three.encode(0, 2, 1, 0);
+		long goal = three.encode(2, 0, 0, 1);
+		System.out.println("Tres torres, " + Arrays.toString(three.decode(start)) + " -> "
+				+ Arrays.toString(three.decode(goal)) + ":");
+		for(int move : three.solve(start, goal)) {
+			System.out.println("\tDisco " + HanoiSolver.disc(move) + ": " + HanoiSolver.from(move) + " -> " + HanoiSolver.to(move));
+		}
+
+		HanoiConfiguration four = new HanoiConfiguration(4, 10);
+		long begin = System.nanoTime();
+		int[] moves = four.solve(four.perfect(0), four.perfect(3));
+		System.out.println("Quatro torres, 10 discos: " + moves.length + " movimentos (Frame-Stewart: "
+				+ TowersOfHanoi.HanoiMultipleTowers.minimumMoves(4, 10) + ") em "
+				+ (System.nanoTime() - begin) / 1_000_000 + " ms");
+	}
+}
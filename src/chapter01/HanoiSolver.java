@@ -0,0 +1,384 @@
+package chapter01;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solucao iterativa das torres de hanoi com tres torres, sem recursao e sem
+ * objetos por movimento, para quantidades de discos que nao cabem no
+ * {@link TowersOfHanoi.Hanoi} (30 discos ja sao cerca de um bilhao de movimentos).
+ *
+ * Cada torre e um bitboard: o bit i esta ligado quando o disco i (0 e o menor)
+ * esta naquela torre, e o topo da torre e o bit ligado mais baixo. No movimento
+ * m (comecando em 1) move-se o disco d = numberOfTrailingZeros(m), e cada disco
+ * sempre anda no mesmo sentido: o disco d anda para a torre seguinte quando
+ * n - d e par e para a anterior quando e impar, levando todos da torre 0 para
+ * a torre 2.
+ *
+ * Os movimentos sao entregues a um {@link MoveConsumer} ou pelo proprio solver,
+ * que e um iterador preguicoso de movimentos compactados em um int
+ * (veja {@link #disc(int)}, {@link #from(int)} e {@link #to(int)}).
+ *
+ * Qualquer movimento tambem pode ser calculado direto pelo seu indice
+ * ({@link #move(int, long)}), o que permite retomar a solucao de qualquer ponto
+ * e dividir a sequencia em intervalos processados em paralelo ({@link #moves(int)}).
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class HanoiSolver implements PrimitiveIterator.OfInt {
+
+	public static final int TOWERS = 3;
+	public static final int MAX_DISCS = 63;
+
+	/**
+	 * Recebe cada movimento sem criar objetos.
+	 * */
+	@FunctionalInterface
+	public interface MoveConsumer{
+		void accept(int disc, int from, int to);
+	}
+
+	private final int discs;
+	private final long totalMoves;
+	private final long[] towers = new long[TOWERS];
+	// Torre atual de cada disco
+	private final byte[] position;
+	private long moves = 0;
+
+	/**
+	 * Constroi as torres com todos os discos na torre 0.
+	 *
+	 * @param discs quantidade de discos, no maximo {@link #MAX_DISCS}
+	 * */
+	public HanoiSolver(int discs) {
+		checkDiscs(discs);
+
+		this.discs = discs;
+		this.totalMoves = moveCount(discs);
+		this.position = new byte[discs];
+		towers[0] = discs == 0 ? 0 : -1L >>> (64 - discs);
+	}
+
+	/**
+	 * Constroi as torres como estariam depois dos primeiros movimentos, para
+	 * retomar a solucao sem repeti-los.
+	 *
+	 * @param discs quantidade de discos, no maximo {@link #MAX_DISCS}
+	 * @param moves quantidade de movimentos ja executados
+	 * */
+	public HanoiSolver(int discs, long moves) {
+		this(discs);
+		if(moves < 0 || moves > totalMoves) {
+			throw new IllegalArgumentException("Movimentos fora do intervalo [0, " + totalMoves + "]: " + moves);
+		}
+
+		towers[0] = 0;
+		for(int disc = 0; disc < discs; disc++) {
+			// O disco d se move nos movimentos 2^d, 3 * 2^d, 5 * 2^d...
+			long count = ((moves >>> disc) + 1) >>> 1;
+			int tower = (int) (count % TOWERS);
+			if(((discs - disc) & 1) != 0) {
+				tower = (TOWERS - tower) % TOWERS;
+			}
+
+			position[disc] = (byte) tower;
+			towers[tower] |= 1L << disc;
+		}
+		this.moves = moves;
+	}
+
+	private static void checkDiscs(int discs) {
+		if(discs < 0 || discs > MAX_DISCS) {
+			throw new IllegalArgumentException("A quantidade de discos deve estar entre 0 e " + MAX_DISCS + ": " + discs);
+		}
+	}
+
+	/**
+	 * @return quantidade minima de movimentos para n discos e tres torres: 2^n - 1
+	 * */
+	public static long moveCount(int discs) {
+		checkDiscs(discs);
+		return (1L << discs) - 1;
+	}
+
+	/**
+	 * Executa todos os movimentos que faltam.
+	 *
+	 * @param consumer recebe cada movimento, na ordem
+	 * @return quantidade de movimentos executados
+	 * */
+	public long solve(MoveConsumer consumer) {
+		long start = moves;
+		while(moves < totalMoves) {
+			long m = ++moves;
+			int disc = Long.numberOfTrailingZeros(m);
+			int from = position[disc];
+			int to = next(disc, from);
+
+			apply(disc, from, to);
+			consumer.accept(disc, from, to);
+		}
+
+		return moves - start;
+	}
+
+	/**
+	 * Executa todos os movimentos que faltam sem entregar nenhum.
+	 * */
+	public void solve() {
+		solve((disc, from, to) -> { });
+	}
+
+	// Torre para onde o disco anda a partir de from
+	private int next(int disc, int from) {
+		int step = ((discs - disc) & 1) == 0 ? 1 : 2;
+		int to = from + step;
+		return to >= TOWERS ? to - TOWERS : to;
+	}
+
+	private void apply(int disc, int from, int to) {
+		long bit = 1L << disc;
+		towers[from] &= ~bit;
+		towers[to] |= bit;
+		position[disc] = (byte) to;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return moves < totalMoves;
+	}
+
+	/**
+	 * Executa o proximo movimento.
+	 *
+	 * @return o movimento compactado
+	 * */
+	@Override
+	public int nextInt() {
+		if(moves >= totalMoves) {
+			throw new NoSuchElementException();
+		}
+
+		long m = ++moves;
+		int disc = Long.numberOfTrailingZeros(m);
+		int from = position[disc];
+		int to = next(disc, from);
+		apply(disc, from, to);
+
+		return pack(disc, from, to);
+	}
+
+	/**
+	 * Compacta um movimento em um int: torre de origem nos bits 0-7, destino
+	 * nos bits 8-15 e o disco a partir do bit 16.
+	 * */
+	public static int pack(int disc, int from, int to) {
+		return from | to << 8 | disc << 16;
+	}
+
+	public static int disc(int move) {
+		return move >>> 16;
+	}
+
+	public static int from(int move) {
+		return move & 0xFF;
+	}
+
+	public static int to(int move) {
+		return (move >>> 8) & 0xFF;
+	}
+
+	/**
+	 * Calcula um movimento pelo seu indice, sem executar os anteriores. Para o
+	 * movimento m = index + 1 a origem e (m & (m - 1)) % 3 e o destino e
+	 * ((m | (m - 1)) + 1) % 3, sequencia que leva os discos para a torre 2
+	 * quando n e impar; quando n e par as torres 1 e 2 sao trocadas.
+	 *
+	 * @param discs quantidade de discos
+	 * @param index indice do movimento, comecando em 0
+	 * @return o movimento compactado
+	 * */
+	public static int move(int discs, long index) {
+		checkDiscs(discs);
+		return moveAt(discs, index);
+	}
+
+	// Sem validar a quantidade de discos, ja validada por quem criou o spliterator
+	private static int moveAt(int discs, long index) {
+		long m = index + 1;
+		int from = (int) Long.remainderUnsigned(m & (m - 1), TOWERS);
+		int to = (int) Long.remainderUnsigned((m | (m - 1)) + 1, TOWERS);
+		if((discs & 1) == 0) {
+			from = SWAP_EVEN[from];
+			to = SWAP_EVEN[to];
+		}
+
+		return pack(Long.numberOfTrailingZeros(m), from, to);
+	}
+
+	// Troca das torres 1 e 2 quando a quantidade de discos e par
+	private static final int[] SWAP_EVEN = {0, 2, 1};
+
+	/**
+	 * @return todos os movimentos compactados, em ordem, que podem ser divididos
+	 * por intervalo de indices para processamento em paralelo
+	 * */
+	public static IntStream moves(int discs) {
+		return moves(discs, 0, moveCount(discs));
+	}
+
+	/**
+	 * @param discs quantidade de discos
+	 * @param origin indice do primeiro movimento
+	 * @param fence indice seguinte ao ultimo movimento
+	 * @return os movimentos compactados no intervalo [origin, fence)
+	 * */
+	public static IntStream moves(int discs, long origin, long fence) {
+		if(origin < 0 || origin > fence || fence > moveCount(discs)) {
+			throw new IllegalArgumentException("Intervalo invalido: [" + origin + ", " + fence + ")");
+		}
+		return StreamSupport.intStream(new MoveSpliterator(discs, origin, fence), false);
+	}
+
+	/**
+	 * Percorre os movimentos no intervalo de indices [origin, fence). A divisao
+	 * corta o intervalo ao meio e cada metade calcula os seus movimentos pela
+	 * formula fechada, sem estado compartilhado.
+	 * */
+	static class MoveSpliterator implements Spliterator.OfInt{
+		private final int discs;
+		private long origin;
+		private final long fence;
+
+		MoveSpliterator(int discs, long origin, long fence) {
+			this.discs = discs;
+			this.origin = origin;
+			this.fence = fence;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if(origin >= fence) {
+				return false;
+			}
+			action.accept(moveAt(discs, origin++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for(long i = origin; i < fence; i++) {
+				action.accept(moveAt(discs, i));
+			}
+			origin = fence;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			long middle = (origin + fence) >>> 1;
+			if(middle <= origin) {
+				return null;
+			}
+
+			MoveSpliterator prefix = new MoveSpliterator(discs, origin, middle);
+			origin = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - origin;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+		}
+	}
+
+	public int discs() {
+		return discs;
+	}
+
+	/**
+	 * @return quantidade de movimentos ja executados
+	 * */
+	public long moves() {
+		return moves;
+	}
+
+	/**
+	 * @param tower indice da torre
+	 * @return bitboard da torre, o bit i ligado indica o disco i
+	 * */
+	public long tower(int tower) {
+		return towers[tower];
+	}
+
+	/**
+	 * @return true quando todos os discos estao na torre 2
+	 * */
+	public boolean isSolved() {
+		return towers[0] == 0 && towers[1] == 0;
+	}
+
+	/**
+	 * Discos de cada torre, de baixo para cima (do maior para o menor).
+	 * */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < TOWERS; i++) {
+			builder.append(i == 0 ? "[" : " [");
+			boolean first = true;
+			for(long tower = towers[i]; tower != 0; tower &= ~Long.highestOneBit(tower)) {
+				if(!first) {
+					builder.append(", ");
+				}
+				builder.append(63 - Long.numberOfLeadingZeros(tower));
+				first = false;
+			}
+			builder.append(']');
+		}
+
+		return builder.toString();
+	}
+
+	public static void main(String[] args) {
+		HanoiSolver small = new HanoiSolver(3);
+		System.out.println("Antes de iniciar: " + small);
+		while(small.hasNext()) {
+			int move = small.nextInt();
+			System.out.println("\tDisco " + disc(move) + ": " + from(move) + " -> " + to(move));
+		}
+		System.out.println("Depois de terminar: " + small);
+
+		HanoiSolver large = new HanoiSolver(30);
+		long[] perTower = new long[TOWERS];
+		long start = System.nanoTime();
+		long moves = large.solve((disc, from, to) -> perTower[to]++);
+		System.out.println("\n30 discos: " + moves + " movimentos em " + (System.nanoTime() - start) / 1_000_000
+				+ " ms, resolvido: " + large.isSolved());
+
+		// Com 40 discos sao mais de um trilhao de movimentos: so o ultimo bilhao, em paralelo
+		long total = moveCount(40);
+		start = System.nanoTime();
+		long toLast = moves(40, total - 1_000_000_000L, total)
+				.parallel()
+				.filter(move -> to(move) == 2)
+				.count();
+		System.out.println("40 discos, ultimo bilhao: " + toLast + " movimentos para a torre 2 em "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+
+		// Retoma a solucao a tres movimentos do fim
+		HanoiSolver resumed = new HanoiSolver(40, total - 3);
+		resumed.solve((disc, from, to) -> System.out.println("\tDisco " + disc + ": " + from + " -> " + to));
+		System.out.println("Resolvido: " + resumed.isSolved());
+	}
+}
@@ -0,0 +1,295 @@
+package chapter01;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fonte dos bytes aleatorios usados como chave (pad) no {@link UnbreakableEncryption}.
+ *
+ * Todas as implementacoes mantem um gerador por thread, assim chamadas
+ * concorrentes nunca disputam o mesmo lock:
+ * 	- {@link #secure()}: um SecureRandom DRBG por thread, adequado para
+ * 		criptografia. O {@code new SecureRandom()} padrao (NativePRNG) nao serve:
+ * 		todas as instancias usam o mesmo leitor estatico e disputam os seus
+ * 		locks globais; cada DRBG tem o seu proprio estado e so consulta a fonte
+ * 		de entropia do sistema ao ser semeado;
+ * 	- {@link #splittable(long)}: SplittableRandom com semente fixa, rapido e
+ * 		reproduzivel, para testes (nao e seguro para criptografia);
+ * 	- {@link #prefetching(PadSource, int, int)}: uma thread em segundo plano
+ * 		deixa blocos prontos de outra fonte.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public abstract class PadSource {
+
+	// Tamanho do array auxiliar de cada thread para fontes que so geram arrays inteiros
+	private static final int SCRATCH_SIZE = 1 << 13;
+
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+	/**
+	 * Preenche o trecho do array com bytes aleatorios.
+	 *
+	 * @param bytes array de destino
+	 * @param offset posicao inicial
+	 * @param length quantidade de bytes
+	 * */
+	public abstract void nextBytes(byte[] bytes, int offset, int length);
+
+	/**
+	 * Preenche o trecho do buffer com bytes aleatorios, sem alterar a sua posicao.
+	 * A implementacao padrao gera os bytes em um array auxiliar da thread.
+	 *
+	 * @param buffer buffer de destino
+	 * @param offset posicao inicial (absoluta)
+	 * @param length quantidade de bytes
+	 * */
+	public void nextBytes(ByteBuffer buffer, int offset, int length) {
+		byte[] scratch = SCRATCH.get();
+		for(int done = 0; done < length; done += scratch.length) {
+			int size = Math.min(scratch.length, length - done);
+			nextBytes(scratch, 0, size);
+			copy(scratch, 0, buffer, offset + done, size);
+		}
+		// Bytes de chave nao ficam guardados no array da thread
+		Arrays.fill(scratch, (byte) 0);
+	}
+
+	// Copia para uma posicao absoluta do buffer sem alterar a sua posicao
+	static void copy(byte[] source, int sourceOffset, ByteBuffer buffer, int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.put(source, sourceOffset, length);
+	}
+
+	/**
+	 * @return fonte criptograficamente segura, com um SecureRandom por thread
+	 * */
+	public static PadSource secure() {
+		return new SecurePadSource();
+	}
+
+	/**
+	 * @param seed semente da qual os geradores de cada thread sao derivados
+	 * @return fonte rapida e reproduzivel (por thread), somente para testes
+	 * */
+	public static PadSource splittable(long seed) {
+		return new SplittablePadSource(seed);
+	}
+
+	/**
+	 * Cria uma fonte que gera os blocos em segundo plano. Quando nao houver
+	 * bloco pronto a thread que pediu os bytes gera direto na fonte original,
+	 * entao quem consome nunca fica esperando pela thread de segundo plano.
+	 *
+	 * @param source fonte original dos bytes
+	 * @param blockSize tamanho de cada bloco
+	 * @param blocks quantidade de blocos mantidos prontos
+	 * @return a fonte, que deve ser fechada para encerrar a thread
+	 * */
+	public static PrefetchingPadSource prefetching(PadSource source, int blockSize, int blocks) {
+		return new PrefetchingPadSource(source, blockSize, blocks);
+	}
+
+	private static class SecurePadSource extends PadSource {
+		private static final ThreadLocal<byte[]> BLOCK = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+		private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecurePadSource::newGenerator);
+		
+		// Gerador independente para uma thread, semeado por ela mesma no primeiro uso
+		private static SecureRandom newGenerator() {
+			for(String algorithm : new String[] {"DRBG", "SHA1PRNG"}) {
+				try {
+					return SecureRandom.getInstance(algorithm);
+				}catch(NoSuchAlgorithmException e) {
+					// Tenta o proximo
+				}
+			}
+			throw new IllegalStateException("Nenhum SecureRandom sem estado compartilhado disponivel (DRBG ou SHA1PRNG)");
+		}
+
+		@Override
+		public void nextBytes(byte[] bytes, int offset, int length) {
+			// O SecureRandom so preenche arrays inteiros
+			if(offset == 0 && length == bytes.length) {
+				random.get().nextBytes(bytes);
+				return;
+			}
+
+			// O array inteiro e gerado e so o inicio necessario e copiado, sem alocar.
+			// Nao e o SCRATCH: ele pode ser o proprio destino (nextBytes de ByteBuffer)
+			byte[] block = BLOCK.get();
+			for(int done = 0; done < length; done += block.length) {
+				int size = Math.min(block.length, length - done);
+				random.get().nextBytes(block);
+				System.arraycopy(block, 0, bytes, offset + done, size);
+			}
+			// Bytes de chave nao ficam guardados no array da thread
+			Arrays.fill(block, (byte) 0);
+		}
+	}
+
+	private static class SplittablePadSource extends PadSource {
+		private final SplittableRandom root;
+		private final ThreadLocal<SplittableRandom> random;
+
+		SplittablePadSource(long seed) {
+			root = new SplittableRandom(seed);
+			// O lock so e usado uma vez por thread, para derivar o seu gerador
+			random = ThreadLocal.withInitial(() -> {
+				synchronized(root) {
+					return root.split();
+				}
+			});
+		}
+
+		@Override
+		public void nextBytes(byte[] bytes, int offset, int length) {
+			SplittableRandom generator = random.get();
+			int end = offset + length;
+			for(int i = offset; i < end; ) {
+				long value = generator.nextLong();
+				for(int j = 0; j < Long.BYTES && i < end; j++, value >>>= 8) {
+					bytes[i++] = (byte) value;
+				}
+			}
+		}
+
+		@Override
+		public void nextBytes(ByteBuffer buffer, int offset, int length) {
+			SplittableRandom generator = random.get();
+			int i = offset;
+			int end = offset + length;
+			for(; i + Long.BYTES <= end; i += Long.BYTES) {
+				buffer.putLong(i, generator.nextLong());
+			}
+
+			for(long last = generator.nextLong(); i < end; i++, last >>>= 8) {
+				buffer.put(i, (byte) last);
+			}
+		}
+	}
+
+	/**
+	 * Fonte com blocos gerados previamente por uma thread em segundo plano. Cada
+	 * thread consumidora guarda o bloco que esta usando, entao a fila so e
+	 * acessada uma vez por bloco.
+	 * */
+	public static class PrefetchingPadSource extends PadSource implements AutoCloseable {
+		private final PadSource source;
+		private final int blockSize;
+		private final BlockingQueue<byte[]> ready;
+		// Blocos ja consumidos, reaproveitados pela thread de segundo plano
+		private final BlockingQueue<byte[]> free;
+		private final Thread producer;
+		private volatile boolean closed = false;
+
+		private final ThreadLocal<Cursor> cursor = ThreadLocal.withInitial(Cursor::new);
+
+		// Bloco em uso por uma thread e quantos bytes dele ja foram consumidos
+		private static class Cursor {
+			byte[] block;
+			int position;
+		}
+
+		PrefetchingPadSource(PadSource source, int blockSize, int blocks) {
+			if(blockSize <= 0 || blocks <= 0) {
+				throw new IllegalArgumentException("O tamanho e a quantidade de blocos devem ser positivos");
+			}
+
+			this.source = source;
+			this.blockSize = blockSize;
+			this.ready = new ArrayBlockingQueue<>(blocks);
+			this.free = new ArrayBlockingQueue<>(blocks);
+
+			producer = new Thread(this::produce, "pad-prefetch");
+			producer.setDaemon(true);
+			producer.start();
+		}
+
+		private void produce() {
+			try {
+				while(!closed) {
+					byte[] block = free.poll();
+					if(block == null) {
+						block = new byte[blockSize];
+					}
+					source.nextBytes(block, 0, blockSize);
+					ready.put(block);
+				}
+			}catch(InterruptedException e) {
+				// Encerrada pelo close()
+			}
+		}
+
+		@Override
+		public void nextBytes(byte[] bytes, int offset, int length) {
+			Cursor current = cursor.get();
+			int done = 0;
+
+			while(done < length) {
+				if(current.block == null || current.position == blockSize) {
+					if(current.block != null) {
+						free.offer(current.block);
+					}
+
+					current.block = ready.poll();
+					if(current.block == null) {
+						// Nenhum bloco pronto: gera o restante direto na fonte
+						source.nextBytes(bytes, offset + done, length - done);
+						return;
+					}
+					current.position = 0;
+				}
+
+				int size = Math.min(blockSize - current.position, length - done);
+				System.arraycopy(current.block, current.position, bytes, offset + done, size);
+				current.position += size;
+				done += size;
+			}
+		}
+
+		@Override
+		public void nextBytes(ByteBuffer buffer, int offset, int length) {
+			Cursor current = cursor.get();
+			int done = 0;
+
+			while(done < length) {
+				if(current.block == null || current.position == blockSize) {
+					if(current.block != null) {
+						free.offer(current.block);
+					}
+
+					current.block = ready.poll();
+					if(current.block == null) {
+						source.nextBytes(buffer, offset + done, length - done);
+						return;
+					}
+					current.position = 0;
+				}
+
+				int size = Math.min(blockSize - current.position, length - done);
+				copy(current.block, current.position, buffer, offset + done, size);
+				current.position += size;
+				done += size;
+			}
+		}
+
+		/**
+		 * Encerra a thread de segundo plano, a fonte continua funcionando gerando
+		 * os bytes diretamente.
+		 * */
+		@Override
+		public void close() {
+			closed = true;
+			producer.interrupt();
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package chapter01;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * O calculo de PI pode ser obtido atraves da Formula de Leibniz:
  * - pi = 4/1 - 4/3 + 4/5 - 4/7 + 4/9...
@@ -13,6 +16,138 @@ package chapter01;
  * */
 public class PiCalculator {
 	
+	// Quantidade de termos somados sequencialmente por cada tarefa
+	private static final long PARALLEL_CHUNK = 1L << 20;
+	
+	/**
+	 * Resultado do calculo paralelo: o valor de pi, a quantidade de termos e o
+	 * tempo gasto, para acompanhar a vazao em termos por segundo.
+	 * */
+	public static class Result{
+		public final double pi;
+		public final long terms;
+		public final long elapsedNanos;
+		
+		Result(double pi, long terms, long elapsedNanos) {
+			this.pi = pi;
+			this.terms = terms;
+			this.elapsedNanos = elapsedNanos;
+		}
+		
+		public double termsPerSecond() {
+			return elapsedNanos == 0 ? 0.0 : terms * 1e9 / elapsedNanos;
+		}
+		
+		@Override
+		public String toString() {
+			return pi + " (" + terms + " termos em " + (elapsedNanos / 1_000_000) + " ms, " 
+					+ String.format("%.3e", termsPerSecond()) + " termos/s)";
+		}
+	}
+	
+	/**
+	 * Soma compensada de Neumaier: {@code compensation} guarda os bits perdidos
+	 * em cada soma e e adicionado somente no final, entao o erro nao depende
+	 * da quantidade de termos.
+	 * */
+	private static class CompensatedSum{
+		double sum, compensation;
+		
+		void add(double value) {
+			double total = sum + value;
+			if(Math.abs(sum) >= Math.abs(value)) {
+				compensation += (sum - total) + value;
+			}else {
+				compensation += (value - total) + sum;
+			}
+			sum = total;
+		}
+		
+		// Junta a soma de outra parte, sem perder a compensacao de nenhuma das duas
+		CompensatedSum merge(CompensatedSum other) {
+			add(other.sum);
+			compensation += other.compensation;
+			return this;
+		}
+		
+		double value() {
+			return sum + compensation;
+		}
+	}
+	
+	/**
+	 * Cada tarefa divide o intervalo de termos [from, to) ao meio, em limites de
+	 * parte, ate chegar no tamanho de uma parte, que e somada sequencialmente 
+	 * com compensacao. Os termos sao somados aos pares, 
+	 * 4/d - 4/(d + 2) = 8/(d * (d + 2)), assim todas as parcelas sao positivas e
+	 * nao ha cancelamento entre elas.
+	 * */
+	private static class LeibnizTask extends RecursiveTask<CompensatedSum>{
+		private static final long serialVersionUID = 1L;
+		
+		private final long from, to;
+		
+		LeibnizTask(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected CompensatedSum compute() {
+			long chunks = (to - from + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+			if(chunks <= 1) {
+				/* from e sempre par, entao cada par comeca com um termo positivo. 
+				Como as parcelas sao positivas e decrescentes a soma e sempre maior 
+				que a parcela e a compensacao de Kahan e suficiente; duas somas 
+				independentes, alternando os pares, evitam que cada soma espere a 
+				anterior terminar. */
+				double sum0 = 0.0, compensation0 = 0.0;
+				double sum1 = 0.0, compensation1 = 0.0;
+				long quads = (to - from) / 4;
+				double denominator0 = 2.0 * from + 1.0;
+				// O contador e o denominador em double deixam o laco mais simples para o JIT
+				for(long k = 0; k < quads; k++, denominator0 += 8.0) {
+					double denominator1 = denominator0 + 4.0;
+					
+					double value0 = 8.0 / (denominator0 * (denominator0 + 2.0)) - compensation0;
+					double total0 = sum0 + value0;
+					compensation0 = (total0 - sum0) - value0;
+					sum0 = total0;
+					
+					double value1 = 8.0 / (denominator1 * (denominator1 + 2.0)) - compensation1;
+					double total1 = sum1 + value1;
+					compensation1 = (total1 - sum1) - value1;
+					sum1 = total1;
+				}
+				
+				CompensatedSum partial = new CompensatedSum();
+				partial.add(sum0);
+				partial.add(-compensation0);
+				partial.add(sum1);
+				partial.add(-compensation1);
+				
+				// Termos que sobraram
+				long i = from + 4 * quads;
+				for(; i + 1 < to; i += 2) {
+					double denominator = 2.0 * i + 1.0;
+					partial.add(8.0 / (denominator * (denominator + 2.0)));
+				}
+				if(i < to) {
+					double term = 4.0 / (2.0 * i + 1.0);
+					partial.add((i & 1) == 0 ? term : -term);
+				}
+				return partial;
+			}
+			
+			long middle = from + (chunks / 2) * PARALLEL_CHUNK;
+			LeibnizTask right = new LeibnizTask(middle, to);
+			right.fork();
+			CompensatedSum left = new LeibnizTask(from, middle).compute();
+			
+			return left.merge(right.join());
+		}
+	}
+	
 	/**
 	 * Esse metodo calcula os n-termos de pi
 	 * 
@@ -35,8 +170,40 @@ public class PiCalculator {
 		return pi;
 	}
 	
+	/**
+	 * Calcula os n-termos de pi em paralelo no pool comum.
+	 * 
+	 * @see #calculatePi(long, ForkJoinPool)
+	 * */
+	public static Result calculatePi(long nTerms) {
+		return calculatePi(nTerms, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Calcula os n-termos de pi dividindo os termos entre as tarefas do pool.
+	 * Cada parte usa soma compensada, entao o resultado e mais preciso do que
+	 * a soma ingenua de {@link #calculatePi(int)}.
+	 * 
+	 * @param nTerms os n-termos para serem calculados
+	 * @param pool pool onde as tarefas serao executadas
+	 * @return o valor da soma dos n-termos de pi e a vazao do calculo
+	 * */
+	public static Result calculatePi(long nTerms, ForkJoinPool pool) {
+		if(nTerms < 0) {
+			throw new IllegalArgumentException("A quantidade de termos nao pode ser negativa: " + nTerms);
+		}
+		
+		long start = System.nanoTime();
+		double pi = pool.invoke(new LeibnizTask(0, nTerms)).value();
+		
+		return new Result(pi, nTerms, System.nanoTime() - start);
+	}
+	
 	public static void main(String[] args) {
 		// Quanto maior o numero de termos maior sera a precisao
 		System.out.println( calculatePi(1000000000) );
+		
+		// Versao paralela com soma compensada
+		System.out.println( calculatePi(1000000000L) );
 	}
 }
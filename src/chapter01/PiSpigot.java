@@ -0,0 +1,165 @@
+package chapter01;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Gera os digitos de pi um de cada vez com o algoritmo spigot sem limite de
+ * Gibbons (Unbounded Spigot Algorithms for the Digits of Pi, 2006), sem
+ * precisar saber antes quantos digitos serao pedidos.
+ *
+ * O estado e a transformacao linear fracionaria (q, r, t) que resta aplicar
+ * na serie de Leibniz acelerada, mais o termo atual k. Um digito e emitido
+ * quando o proximo termo nao pode mais altera-lo; caso contrario mais um termo
+ * e consumido. O tamanho de q, r e t cresce com os digitos ja emitidos, nunca
+ * com os que ainda serao pedidos, entao quem consome pode parar a qualquer
+ * momento sem desperdicio.
+ *
+ * Para muitos digitos de uma vez o {@link ChudnovskyPi} e bem mais rapido.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class PiSpigot implements PrimitiveIterator.OfInt {
+
+	private static final BigInteger TWO = BigInteger.valueOf(2);
+	private static final BigInteger THREE = BigInteger.valueOf(3);
+	private static final BigInteger FOUR = BigInteger.valueOf(4);
+
+	// Digitos acumulados antes de cada escrita no Writer ou no canal
+	private static final int BATCH_SIZE = 1 << 12;
+
+	private BigInteger q = BigInteger.ONE, r = BigInteger.ZERO, t = BigInteger.ONE;
+	private long k = 1, l = 3;
+	private int n = 3;
+
+	/**
+	 * @return sempre true, a sequencia de digitos nao tem fim
+	 * */
+	@Override
+	public boolean hasNext() {
+		return true;
+	}
+
+	/**
+	 * @return o proximo digito de pi, comecando pelo 3 da parte inteira
+	 * */
+	@Override
+	public int nextInt() {
+		BigInteger digit = BigInteger.valueOf(n);
+
+		// Enquanto 4q + r - t >= n * t o proximo termo ainda pode mudar o digito
+		while(q.multiply(FOUR).add(r).subtract(t).compareTo(digit.multiply(t)) >= 0) {
+			BigInteger bigK = BigInteger.valueOf(k);
+			BigInteger bigL = BigInteger.valueOf(l);
+
+			BigInteger nextR = q.multiply(TWO).add(r).multiply(bigL);
+			BigInteger nextT = t.multiply(bigL);
+			n = q.multiply(BigInteger.valueOf(7 * k + 2)).add(r.multiply(bigL)).divide(nextT).intValueExact();
+			q = q.multiply(bigK);
+			r = nextR;
+			t = nextT;
+			k++;
+			l += 2;
+			digit = BigInteger.valueOf(n);
+		}
+
+		int result = n;
+		// Remove o digito emitido e desloca uma casa decimal
+		BigInteger nextR = r.subtract(digit.multiply(t)).multiply(BigInteger.TEN);
+		n = q.multiply(THREE).add(r).multiply(BigInteger.TEN).divide(t).intValueExact() - 10 * n;
+		q = q.multiply(BigInteger.TEN);
+		r = nextR;
+
+		return result;
+	}
+
+	/**
+	 * @return stream infinito e preguicoso dos digitos de pi, use limit() ou
+	 * takeWhile() para parar
+	 * */
+	public static IntStream digits() {
+		Spliterator.OfInt spliterator = Spliterators.spliteratorUnknownSize(new PiSpigot(),
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+		return StreamSupport.intStream(spliterator, false);
+	}
+
+	/**
+	 * Escreve os digitos no Writer em lotes, no formato 3.1415...
+	 *
+	 * @param writer destino dos digitos
+	 * @param decimals quantidade de casas decimais
+	 * */
+	public static void write(Writer writer, long decimals) throws IOException {
+		PiSpigot spigot = new PiSpigot();
+		char[] batch = new char[BATCH_SIZE];
+
+		batch[0] = (char) ('0' + spigot.nextInt());
+		batch[1] = '.';
+		int size = 2;
+		for(long i = 0; i < decimals; i++) {
+			if(size == batch.length) {
+				writer.write(batch, 0, size);
+				size = 0;
+			}
+			batch[size++] = (char) ('0' + spigot.nextInt());
+		}
+
+		writer.write(batch, 0, size);
+		writer.flush();
+	}
+
+	/**
+	 * Escreve os digitos no canal em lotes (ASCII), no formato 3.1415...
+	 *
+	 * @param channel destino dos digitos
+	 * @param decimals quantidade de casas decimais
+	 * */
+	public static void write(WritableByteChannel channel, long decimals) throws IOException {
+		PiSpigot spigot = new PiSpigot();
+		ByteBuffer batch = ByteBuffer.allocate(BATCH_SIZE);
+
+		batch.put((byte) ('0' + spigot.nextInt()));
+		batch.put((byte) '.');
+		for(long i = 0; i < decimals; i++) {
+			if(!batch.hasRemaining()) {
+				drain(batch, channel);
+			}
+			batch.put((byte) ('0' + spigot.nextInt()));
+		}
+
+		drain(batch, channel);
+	}
+
+	private static void drain(ByteBuffer batch, WritableByteChannel channel) throws IOException {
+		batch.flip();
+		while(batch.hasRemaining()) {
+			channel.write(batch);
+		}
+		batch.clear();
+	}
+
+	public static void main(String[] args) throws IOException {
+		digits().limit(20).forEach(System.out::print);
+		System.out.println();
+
+		// Para assim que encontra a sequencia 999999 (ponto de Feynman)
+		int[] run = {0};
+		long position = digits().takeWhile(d -> (run[0] = d == 9 ? run[0] + 1 : 0) < 6).count();
+		System.out.println("Seis noves a partir da casa " + (position - 5));
+
+		Writer out = new OutputStreamWriter(System.out);
+		write(out, 100);
+		System.out.println();
+	}
+}
@@ -1,7 +1,9 @@
 package chapter01;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 /**
@@ -17,13 +19,80 @@ import java.util.Stack;
  * */
 public class TowersOfHanoi {
 	
+	/**
+	 * Tabela de Frame-Stewart para uma quantidade de torres: a quantidade minima
+	 * de movimentos para cada quantidade de discos e o melhor ponto de divisao.
+	 * As tabelas sao compartilhadas entre todas as instancias e so crescem, entao
+	 * resolver de novo as mesmas (torres, discos) nao recalcula nada.
+	 * */
+	static class FrameStewart{
+		private static final Map<Integer, FrameStewart> TABLES = new HashMap<>();
+		
+		final long[] moves;
+		// Quantos discos do topo sao movidos para uma torre auxiliar usando todas as torres
+		final int[] split;
+		
+		private FrameStewart(long[] moves, int[] split) {
+			this.moves = moves;
+			this.split = split;
+		}
+		
+		/**
+		 * @return tabela com pelo menos {@code discs} discos para {@code towers} torres
+		 * */
+		static synchronized FrameStewart table(int towers, int discs) {
+			FrameStewart table = TABLES.get(towers);
+			if(table != null && table.moves.length > discs) {
+				return table;
+			}
+			
+			long[] moves = new long[discs + 1];
+			int[] split = new int[discs + 1];
+			if(towers == 3) {
+				// Com tres torres so ha uma escolha: n - 1 discos para a auxiliar
+				for(int n = 1; n <= discs; n++) {
+					moves[n] = n >= 63 ? Long.MAX_VALUE : (1L << n) - 1;
+					split[n] = n - 1;
+				}
+			}else {
+				FrameStewart fewer = table(towers - 1, discs);
+				for(int n = 1; n <= discs; n++) {
+					// Move t discs com todas as torres, n - t com uma torre a menos e os t de volta
+					moves[n] = Long.MAX_VALUE;
+					for(int t = 0; t < n; t++) {
+						long total = saturatedAdd(saturatedAdd(moves[t], moves[t]), fewer.moves[n - t]);
+						if(total < moves[n]) {
+							moves[n] = total;
+							split[n] = t;
+						}
+					}
+				}
+			}
+			
+			table = new FrameStewart(moves, split);
+			TABLES.put(towers, table);
+			return table;
+		}
+		
+		private static long saturatedAdd(long a, long b) {
+			long sum = a + b;
+			return sum < 0 ? Long.MAX_VALUE : sum;
+		}
+	}
+	
 	/**
 	 * Solucao do desafio proposto pelo autor: realizar a implementacao do algoritmo
 	 * para n torres.
+	 * 
+	 * Usa a estrategia de Frame-Stewart: com k torres, os t discos do topo vao
+	 * para uma torre auxiliar usando as k torres, os n - t restantes vao para o
+	 * destino usando k - 1 torres (a auxiliar esta ocupada) e os t discos vao da
+	 * auxiliar para o destino com as k torres. O t que minimiza os movimentos vem
+	 * da {@link FrameStewart}.
 	 * */
 	public static class HanoiMultipleTowers{
-		private static int numDiscs = 0;
-		private static int numTowers = 0;
+		private final int numDiscs;
+		private final int numTowers;
 		
 		// Uma lista das pilhas/torres
 		public final List<Stack<Integer>> towers;
@@ -31,10 +100,14 @@ public class TowersOfHanoi {
 		/**
 		 * Constroi as torres de hanoi com a quantidade determinada de discos.
 		 * 
-		 * @param numTowers quantidade de torres
+		 * @param numTowers quantidade de torres, entre 3 e 64
 		 * @param numDiscs quantidade de discos
 		 * */
 		HanoiMultipleTowers(int numTowers, int numDiscs){
+			if(numTowers < 3 || numTowers > Long.SIZE) {
+				throw new IllegalArgumentException("A quantidade de torres deve estar entre 3 e 64: " + numTowers);
+			}
+			
 			towers = new ArrayList<>();
 			this.numTowers = numTowers;
 			
@@ -48,32 +121,60 @@ public class TowersOfHanoi {
 			}
 		}
 		
-		// Sem alteracoes nessa parte do algoritmo
-		private void move(Stack<Integer> begin, Stack<Integer> end, Stack<Integer> temp, int n) {
-			if( begin.isEmpty() ) {
+		/**
+		 * @return quantidade minima de movimentos de Frame-Stewart
+		 * */
+		public static long minimumMoves(int numTowers, int numDiscs) {
+			return FrameStewart.table(numTowers, numDiscs).moves[numDiscs];
+		}
+		
+		/**
+		 * Move n discs do topo de begin para end.
+		 * 
+		 * @param free bits das torres vazias ou com discos maiores que os n discos
+		 * @param tables tabela de Frame-Stewart de cada quantidade de torres, buscadas
+		 * 		uma unica vez no solve() para nao passar pelo lock a cada movimento
+		 * */
+		private void move(int begin, int end, long free, int n, FrameStewart[] tables) {
+			if( n == 0 ) {
 				return;
 			}
 			
 			if( n == 1 ) {
-				end.push( begin.pop() );
-			}else {
-				move(begin, temp, end, n - 1);
-				move(begin, end, temp, n);
-				move(temp, end, begin, n - 1);
+				towers.get(end).push( towers.get(begin).pop() );
+				return;
 			}
+			
+			int available = Long.bitCount(free) + 2;
+			int temp = Long.numberOfTrailingZeros(free);
+			int t = tables[available].split[n];
+			long others = free & ~(1L << temp);
+			
+			move(begin, temp, others | (1L << end), t, tables);
+			move(begin, end, others, n - t, tables);
+			move(temp, end, others | (1L << begin), t, tables);
 		}
 		
 		/**
-		 *  Mantemos a primeira torre sendo a inicial e a ultima sendo a final, pegamos a 
-		 * 	torre mediapara utilizarmos como temp.
+		 *  Mantemos a primeira torre sendo a inicial e a ultima sendo a final, as
+		 *  demais sao todas usadas como auxiliares.
 		 */
 		public void solve() {
-			move(towers.get(0), towers.get(numTowers - 1), towers.get(numTowers / 2), numDiscs);
+			long free = 0;
+			for(int i = 1; i < numTowers - 1; i++) {
+				free |= 1L << i;
+			}
+			
+			FrameStewart[] tables = new FrameStewart[numTowers + 1];
+			for(int k = 3; k <= numTowers; k++) {
+				tables[k] = FrameStewart.table(k, numDiscs);
+			}
+			move(0, numTowers - 1, free, numDiscs, tables);
 		}
 	}
 	
 	public static class Hanoi{
-		private static int numDiscs = 0;
+		private final int numDiscs;
 		
 		/**
 		 * Seguindo a estrutura de pilha (Stack), onde o ultimo elemento inserido
@@ -148,7 +249,7 @@ public class TowersOfHanoi {
 		
 		HanoiMultipleTowers hanoiMultiple = new HanoiMultipleTowers(5, 7);
 		
-		System.out.println("\nHanoi Multiple Towers:");
+		System.out.println("\nHanoi Multiple Towers (" + HanoiMultipleTowers.minimumMoves(5, 7) + " movimentos):");
 		System.out.println("Antes de iniciar:");
 		hanoiMultiple.towers.forEach(tower -> System.out.println("\t" + tower));
 		hanoiMultiple.solve();
@@ -0,0 +1,543 @@
+package chapter01;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Esse algoritmo utilizada da operacao XOR, que é um OU Exclusivo representado pelo sinal "^".
+ * Sua exclusividade se dá no seu retorno:
+ * 	- True, quando um dos operandos é True -> 1 no binario
+ * 	- False, quando os dois operandos são True ou quando nenhum é -> 0 no binario
+ * 
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class UnbreakableEncryption {
+	//Classe responsavel por conter o par de chaves
+	public static class KeyPair{
+		public final byte[] key1;
+		public final byte[] key2;
+		
+		KeyPair(byte[] key1, byte[] key2) {
+			this.key1 = key1;
+			this.key2 = key2;
+		}
+	}
+	
+	// Fonte dos bytes aleatorios, com um gerador por thread
+	private static volatile PadSource padSource = PadSource.secure();
+	
+	/**
+	 * Troca a fonte usada para gerar as chaves, por exemplo por uma fonte com
+	 * blocos pre-gerados ou por uma fonte reproduzivel nos testes.
+	 * 
+	 * @param source a nova fonte das chaves
+	 * */
+	public static void setPadSource(PadSource source) {
+		if(source == null) {
+			throw new IllegalArgumentException("A fonte das chaves nao pode ser nula");
+		}
+		
+		padSource = source;
+	}
+	
+	// Visao de um byte[] como longs, para aplicar o XOR 8 bytes por vez
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	
+	// Tamanho de cada parte nas versoes paralelas, para caber no cache (256 KB)
+	static final int PARALLEL_CHUNK = 1 << 18;
+	
+	// Abaixo desse tamanho as versoes paralelas executam sequencialmente (4 MB)
+	static final int PARALLEL_THRESHOLD = 1 << 22;
+	
+	// Um encoder reaproveitado por thread, trocado somente quando o charset muda
+	private static final ThreadLocal<CharsetEncoder[]> ENCODER = ThreadLocal.withInitial(() -> new CharsetEncoder[1]);
+	
+	// Encryption
+	public static KeyPair encrypt(String original) {
+		byte[] originalBytes = original.getBytes();
+		byte[] dummyKey = new byte[originalBytes.length];
+		byte[] encryptedKey = new byte[originalBytes.length];
+		
+		encrypt(originalBytes, 0, originalBytes.length, dummyKey, 0, encryptedKey, 0);
+		
+		return new KeyPair(dummyKey, encryptedKey);
+	}
+	
+	/**
+	 * Criptografa o trecho do array sem alocar nada: a chave e escrita em 
+	 * {@code pad} e o resultado em {@code encrypted}, que pode ser o proprio 
+	 * array original.
+	 * 
+	 * @param original array com o conteudo original
+	 * @param offset inicio do conteudo
+	 * @param length quantidade de bytes
+	 * @param pad array que recebe a chave aleatoria
+	 * @param padOffset posicao inicial da chave
+	 * @param encrypted array que recebe o conteudo criptografado
+	 * @param encryptedOffset posicao inicial do conteudo criptografado
+	 * @throws IndexOutOfBoundsException se algum trecho estiver fora do seu array
+	 * */
+	public static void encrypt(byte[] original, int offset, int length, 
+			byte[] pad, int padOffset, byte[] encrypted, int encryptedOffset) {
+		Objects.checkFromIndexSize(offset, length, original.length);
+		Objects.checkFromIndexSize(padOffset, length, pad.length);
+		Objects.checkFromIndexSize(encryptedOffset, length, encrypted.length);
+		
+		padSource.nextBytes(pad, padOffset, length);
+		xor(original, offset, pad, padOffset, encrypted, encryptedOffset, length);
+	}
+	
+	/**
+	 * Codifica o texto com o charset recebido direto no destino e o criptografa
+	 * no proprio lugar, sem o array intermediario do {@code getBytes()}. 
+	 * Caracteres que o charset nao representa sao substituidos, como no 
+	 * {@code getBytes()}.
+	 * 
+	 * @param original texto original
+	 * @param charset charset usado para converter o texto em bytes
+	 * @param pad array que recebe a chave aleatoria
+	 * @param padOffset posicao inicial da chave
+	 * @param encrypted array que recebe o conteudo criptografado
+	 * @param encryptedOffset posicao inicial do conteudo criptografado
+	 * @return quantidade de bytes criptografados (e da chave)
+	 * @throws IndexOutOfBoundsException se o texto codificado nao couber no destino
+	 * 		ou na chave
+	 * */
+	public static int encrypt(CharSequence original, Charset charset, 
+			byte[] pad, int padOffset, byte[] encrypted, int encryptedOffset) {
+		Objects.checkIndex(encryptedOffset, encrypted.length + 1);
+		Objects.checkIndex(padOffset, pad.length + 1);
+		// O texto so pode ocupar o espaco que tambem cabe na chave
+		int capacity = Math.min(encrypted.length - encryptedOffset, pad.length - padOffset);
+		ByteBuffer target = ByteBuffer.wrap(encrypted, encryptedOffset, capacity);
+		
+		try {
+			CharsetEncoder encoder = encoder(charset);
+			CoderResult result = encoder.encode(CharBuffer.wrap(original), target, true);
+			if(!result.isOverflow()) {
+				result = encoder.flush(target);
+			}
+			if(result.isOverflow()) {
+				throw new IndexOutOfBoundsException("O texto codificado nao cabe no destino ou na chave");
+			}
+			
+			int length = target.position() - encryptedOffset;
+			encrypt(encrypted, encryptedOffset, length, pad, padOffset, encrypted, encryptedOffset);
+			
+			return length;
+		}catch(RuntimeException e) {
+			// Nao deixa texto original no array que deveria ter so o conteudo criptografado
+			Arrays.fill(encrypted, encryptedOffset, target.position(), (byte) 0);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Criptografa os bytes restantes de {@code original}, escrevendo a chave em 
+	 * {@code pad} e o resultado em {@code encrypted}, que pode ser o proprio 
+	 * {@code original}. As posicoes dos buffers avancam a quantidade de bytes 
+	 * criptografados.
+	 * 
+	 * @param original buffer com o conteudo original
+	 * @param pad buffer que recebe a chave aleatoria
+	 * @param encrypted buffer que recebe o conteudo criptografado
+	 * @return quantidade de bytes criptografados
+	 * @throws BufferOverflowException se a chave ou o destino nao
+	 * 		tiverem espaco suficiente
+	 * */
+	public static int encrypt(ByteBuffer original, ByteBuffer pad, ByteBuffer encrypted) {
+		int length = original.remaining();
+		checkRemaining(pad, length);
+		checkRemaining(encrypted, length);
+		
+		padSource.nextBytes(pad, pad.position(), length);
+		xor(original, pad, encrypted, length);
+		
+		return length;
+	}
+	
+	/**
+	 * Versao paralela de {@link #encrypt(byte[], int, int, byte[], int, byte[], int)}
+	 * para conteudos grandes. O conteudo e dividido em partes de 256 KB e cada 
+	 * tarefa gera a chave da sua parte, com o gerador da propria thread, e aplica
+	 * o XOR. Abaixo de 4 MB a execucao e sequencial.
+	 * 
+	 * @param pool pool onde as tarefas serao executadas
+	 * @see #encrypt(byte[], int, int, byte[], int, byte[], int)
+	 * */
+	public static void encrypt(byte[] original, int offset, int length, 
+			byte[] pad, int padOffset, byte[] encrypted, int encryptedOffset, ForkJoinPool pool) {
+		if(length < PARALLEL_THRESHOLD) {
+			encrypt(original, offset, length, pad, padOffset, encrypted, encryptedOffset);
+			return;
+		}
+		
+		Objects.checkFromIndexSize(offset, length, original.length);
+		Objects.checkFromIndexSize(padOffset, length, pad.length);
+		Objects.checkFromIndexSize(encryptedOffset, length, encrypted.length);
+		
+		pool.invoke(new XorTask(original, offset, pad, padOffset, encrypted, encryptedOffset, 
+				0, length, padSource));
+	}
+	
+	/**
+	 * Versao paralela de {@link #decrypt(byte[], int, int, byte[], int, byte[], int)},
+	 * com as mesmas partes e o mesmo limite da criptografia paralela.
+	 * 
+	 * @param pool pool onde as tarefas serao executadas
+	 * @see #decrypt(byte[], int, int, byte[], int, byte[], int)
+	 * */
+	public static void decrypt(byte[] encrypted, int offset, int length, 
+			byte[] pad, int padOffset, byte[] decrypted, int decryptedOffset, ForkJoinPool pool) {
+		if(length < PARALLEL_THRESHOLD) {
+			decrypt(encrypted, offset, length, pad, padOffset, decrypted, decryptedOffset);
+			return;
+		}
+		
+		Objects.checkFromIndexSize(offset, length, encrypted.length);
+		Objects.checkFromIndexSize(padOffset, length, pad.length);
+		Objects.checkFromIndexSize(decryptedOffset, length, decrypted.length);
+		
+		pool.invoke(new XorTask(encrypted, offset, pad, padOffset, decrypted, decryptedOffset, 
+				0, length, null));
+	}
+	
+	/**
+	 * Divide o intervalo [from, to) ao meio, sempre em limites de parte, ate 
+	 * restar uma unica parte. Se houver uma fonte, a chave da parte e gerada 
+	 * antes do XOR.
+	 * */
+	private static class XorTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final byte[] input, pad, output;
+		private final int inputOffset, padOffset, outputOffset;
+		private final int from, to;
+		private final PadSource source;
+		
+		XorTask(byte[] input, int inputOffset, byte[] pad, int padOffset, byte[] output, int outputOffset, 
+				int from, int to, PadSource source) {
+			this.input = input;
+			this.inputOffset = inputOffset;
+			this.pad = pad;
+			this.padOffset = padOffset;
+			this.output = output;
+			this.outputOffset = outputOffset;
+			this.from = from;
+			this.to = to;
+			this.source = source;
+		}
+		
+		@Override
+		protected void compute() {
+			int chunks = (to - from + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+			if(chunks <= 1) {
+				if(source != null) {
+					source.nextBytes(pad, padOffset + from, to - from);
+				}
+				xor(input, inputOffset + from, pad, padOffset + from, output, outputOffset + from, to - from);
+				return;
+			}
+			
+			int middle = from + (chunks / 2) * PARALLEL_CHUNK;
+			invokeAll(new XorTask(input, inputOffset, pad, padOffset, output, outputOffset, from, middle, source),
+					new XorTask(input, inputOffset, pad, padOffset, output, outputOffset, middle, to, source));
+		}
+	}
+	
+	/**
+	 * Descriptografa o trecho do array sem alocar nada.
+	 * 
+	 * @param encrypted array com o conteudo criptografado
+	 * @param offset inicio do conteudo criptografado
+	 * @param length quantidade de bytes
+	 * @param pad array com a chave
+	 * @param padOffset posicao inicial da chave
+	 * @param decrypted array que recebe o conteudo original
+	 * @param decryptedOffset posicao inicial do conteudo original
+	 * @throws IndexOutOfBoundsException se algum trecho estiver fora do seu array
+	 * */
+	public static void decrypt(byte[] encrypted, int offset, int length, 
+			byte[] pad, int padOffset, byte[] decrypted, int decryptedOffset) {
+		Objects.checkFromIndexSize(offset, length, encrypted.length);
+		Objects.checkFromIndexSize(padOffset, length, pad.length);
+		Objects.checkFromIndexSize(decryptedOffset, length, decrypted.length);
+		
+		xor(encrypted, offset, pad, padOffset, decrypted, decryptedOffset, length);
+	}
+	
+	/**
+	 * Descriptografa os bytes restantes de {@code encrypted} com a chave de 
+	 * {@code pad}, escrevendo em {@code decrypted}, que pode ser o proprio 
+	 * {@code encrypted}. As posicoes dos buffers avancam a quantidade de bytes.
+	 * 
+	 * @param encrypted buffer com o conteudo criptografado
+	 * @param pad buffer com a chave
+	 * @param decrypted buffer que recebe o conteudo original
+	 * @return quantidade de bytes descriptografados
+	 * @throws BufferUnderflowException se a chave for menor que o conteudo
+	 * @throws BufferOverflowException se o destino nao tiver espaco suficiente
+	 * */
+	public static int decrypt(ByteBuffer encrypted, ByteBuffer pad, ByteBuffer decrypted) {
+		int length = encrypted.remaining();
+		if(pad.remaining() < length) {
+			throw new BufferUnderflowException();
+		}
+		checkRemaining(decrypted, length);
+		
+		xor(encrypted, pad, decrypted, length);
+		
+		return length;
+	}
+	
+	private static CharsetEncoder encoder(Charset charset) {
+		CharsetEncoder[] cached = ENCODER.get();
+		if(cached[0] == null || !cached[0].charset().equals(charset)) {
+			cached[0] = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+		
+		return cached[0].reset();
+	}
+	
+	private static void checkRemaining(ByteBuffer buffer, int length) {
+		if(buffer.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+	}
+	
+	// out = a ^ b, 8 bytes por operacao e o restante byte a byte
+	private static void xor(byte[] a, int aOffset, byte[] b, int bOffset, byte[] out, int outOffset, int length) {
+		int i = 0;
+		for(; i + Long.BYTES <= length; i += Long.BYTES) {
+			long value = (long) LONGS.get(a, aOffset + i) ^ (long) LONGS.get(b, bOffset + i);
+			LONGS.set(out, outOffset + i, value);
+		}
+		
+		for(; i < length; i++) {
+			out[outOffset + i] = (byte) (a[aOffset + i] ^ b[bOffset + i]);
+		}
+	}
+	
+	// Mesma ideia para buffers, usando posicoes absolutas e avancando no final.
+	// O destino pode ser o proprio buffer de entrada (a ou b): as posicoes sao
+	// lidas antes e cada buffer avanca uma unica vez
+	private static void xor(ByteBuffer a, ByteBuffer b, ByteBuffer out, int length) {
+		int ai = a.position(), bi = b.position(), oi = out.position();
+		if(a.hasArray() && b.hasArray() && out.hasArray() && !out.isReadOnly()) {
+			xor(a.array(), a.arrayOffset() + ai, b.array(), b.arrayOffset() + bi, 
+					out.array(), out.arrayOffset() + oi, length);
+		}else {
+			int i = 0;
+			// Os longs so podem ser usados se os tres buffers tiverem a mesma ordem de bytes
+			if(a.order() == b.order() && b.order() == out.order()) {
+				for(; i + Long.BYTES <= length; i += Long.BYTES) {
+					out.putLong(oi + i, a.getLong(ai + i) ^ b.getLong(bi + i));
+				}
+			}
+			
+			for(; i < length; i++) {
+				out.put(oi + i, (byte) (a.get(ai + i) ^ b.get(bi + i)));
+			}
+		}
+		
+		a.position(ai + length);
+		if(b != a) {
+			b.position(bi + length);
+		}
+		if(out != a && out != b) {
+			out.position(oi + length);
+		}
+	}
+	
+	// Decryption
+	public static String decrypt(KeyPair kp) {
+		byte[] decrypted = new byte[kp.key1.length];
+		// Aplicando novamente o XOR para cada byte
+		decrypt(kp.key2, 0, kp.key2.length, kp.key1, 0, decrypted, 0);
+		
+		return new String(decrypted);
+	}
+	
+	/**
+	 * Criptografia em fluxo para conteudos maiores que o heap: os dados sao lidos
+	 * de um canal em blocos, a chave (pad) e o conteudo criptografado sao escritos
+	 * em canais separados. Os buffers sao diretos e reaproveitados entre as
+	 * chamadas, entao cada instancia deve ser usada por uma thread de cada vez.
+	 * 
+	 * O XOR e aplicado 8 bytes por vez, lendo e escrevendo longs nos buffers.
+	 * */
+	public static class StreamCipher{
+		// Tamanho padrao dos buffers (1 MB)
+		public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+		
+		private final ByteBuffer data;
+		private final ByteBuffer pad;
+		private final PadSource source;
+		
+		public StreamCipher() {
+			this( DEFAULT_BUFFER_SIZE );
+		}
+		
+		/**
+		 * @param bufferSize tamanho dos buffers, arredondado para um multiplo de 8
+		 * */
+		public StreamCipher(int bufferSize) {
+			this( bufferSize, padSource );
+		}
+		
+		/**
+		 * @param bufferSize tamanho dos buffers, arredondado para um multiplo de 8
+		 * @param source fonte dos bytes aleatorios da chave
+		 * */
+		public StreamCipher(int bufferSize, PadSource source) {
+			if(bufferSize < Long.BYTES) {
+				throw new IllegalArgumentException("O buffer deve ter pelo menos 8 bytes: " + bufferSize);
+			}
+			
+			int size = bufferSize & -Long.BYTES;
+			data = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+			pad = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+			this.source = source;
+		}
+		
+		/**
+		 * Criptografa todo o conteudo do canal de entrada.
+		 * 
+		 * @param original canal com o conteudo original
+		 * @param encrypted canal que recebe o conteudo criptografado
+		 * @param padOut canal que recebe a chave aleatoria, do mesmo tamanho do conteudo
+		 * @return quantidade de bytes criptografados
+		 * @throws IOException se houver erro de leitura ou escrita
+		 * */
+		public long encrypt(ReadableByteChannel original, WritableByteChannel encrypted, 
+				WritableByteChannel padOut) throws IOException {
+			long total = 0;
+			
+			int length;
+			while((length = fill(original, data.clear())) > 0) {
+				// O writeFully da volta anterior deixou o limite no tamanho daquele bloco
+				pad.clear();
+				source.nextBytes(pad, 0, length);
+				xor(length);
+				
+				writeFully(padOut, pad, length);
+				writeFully(encrypted, data, length);
+				total += length;
+			}
+			
+			return total;
+		}
+		
+		/**
+		 * Descriptografa o conteudo lido do canal, usando a chave lida do outro canal.
+		 * 
+		 * @param encrypted canal com o conteudo criptografado
+		 * @param padIn canal com a chave gerada na criptografia
+		 * @param decrypted canal que recebe o conteudo original
+		 * @return quantidade de bytes descriptografados
+		 * @throws IOException se houver erro de leitura ou escrita, ou se a chave 
+		 * 		for menor que o conteudo
+		 * */
+		public long decrypt(ReadableByteChannel encrypted, ReadableByteChannel padIn, 
+				WritableByteChannel decrypted) throws IOException {
+			long total = 0;
+			
+			int length;
+			while((length = fill(encrypted, data.clear())) > 0) {
+				if(fill(padIn, pad.clear().limit(length)) < length) {
+					throw new IOException("A chave eh menor que o conteudo criptografado");
+				}
+				xor(length);
+				
+				writeFully(decrypted, data, length);
+				total += length;
+			}
+			
+			return total;
+		}
+		
+		// data = data ^ pad, 8 bytes por operacao e o restante byte a byte
+		private void xor(int length) {
+			int i = 0;
+			for(; i + Long.BYTES <= length; i += Long.BYTES) {
+				data.putLong(i, data.getLong(i) ^ pad.getLong(i));
+			}
+			
+			for(; i < length; i++) {
+				data.put(i, (byte) (data.get(i) ^ pad.get(i)));
+			}
+		}
+		
+		// Le do canal a partir do inicio do buffer ate o seu limite ou ate o fim do canal
+		private static int fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+			buffer.position(0);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Continua lendo
+			}
+			
+			return buffer.position();
+		}
+		
+		private static void writeFully(WritableByteChannel channel, ByteBuffer buffer, int length) throws IOException {
+			buffer.limit(length).position(0);
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		KeyPair kp = encrypt( "Test your luck!" );
+		String reverse = decrypt( kp );
+		
+		System.out.println(reverse);
+		
+		// Criptografia em fluxo usando canais
+		byte[] original = "Test your luck with channels!".getBytes();
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		ByteArrayOutputStream pad = new ByteArrayOutputStream();
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		
+		StreamCipher cipher = new StreamCipher(16);
+		cipher.encrypt(Channels.newChannel(new ByteArrayInputStream(original)), 
+				Channels.newChannel(encrypted), Channels.newChannel(pad));
+		cipher.decrypt(Channels.newChannel(new ByteArrayInputStream(encrypted.toByteArray())), 
+				Channels.newChannel(new ByteArrayInputStream(pad.toByteArray())), 
+				Channels.newChannel(decrypted));
+		
+		System.out.println(decrypted);
+		
+		// Sem alocacoes: os buffers sao do chamador e podem ser reaproveitados
+		byte[] padBuffer = new byte[64];
+		byte[] encryptedBuffer = new byte[64];
+		byte[] decryptedBuffer = new byte[64];
+		int length = encrypt("Test your luck without garbage!", StandardCharsets.UTF_8, padBuffer, 0, encryptedBuffer, 0);
+		decrypt(encryptedBuffer, 0, length, padBuffer, 0, decryptedBuffer, 0);
+		
+		System.out.println(new String(decryptedBuffer, 0, length, StandardCharsets.UTF_8));
+	}
+}
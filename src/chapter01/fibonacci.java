@@ -1,18 +1,139 @@
 package chapter01;
 
-import java.util.Map;
-import java.util.HashMap;
-import java.util.stream.IntStream;
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class fibonacci {
     
     private static int last, next;
     
+    // A partir desse tamanho (em bits) as multiplicações do fib6 são feitas em paralelo
+    private static final int PARALLEL_BITS = 1 << 17;
+    
+    /**
+     * Tabela com os valores já calculados, compartilhada entre as threads.
+     * Os casos base 0->0 e 1->1 já vêm preenchidos.
+     * */
+    static final Memo memo = new Memo(1 << 12);
+
     /**
-     * Map.of() está disponível a partir do Java 9, ele retorna um map imutável.
-     * Isto cria um map com 0->0, 1->1, que são nossos casos base.
+     * Memorização segura para várias threads, sem objetos para os valores que
+     * cabem em um long:
+     *  - até F(92) os valores ficam em um AtomicLongArray (0 indica ausente);
+     *  - acima disso ficam em um AtomicReferenceArray de BigInteger, que cresce
+     *    sob demanda até a capacidade informada. Índices além da capacidade são
+     *    calculados pelo fib6 e não são guardados, então a memória é limitada.
+     * As leituras não usam lock; somente quem preenche a tabela de BigInteger
+     * sincroniza, já que ela é sempre preenchida em ordem.
      * */
-    static Map<Integer, Integer> memo = new HashMap<>( Map.of(0, 0, 1, 1) );
+    static final class Memo {
+        // F(92) é o maior valor que cabe em um long
+        static final int LONG_LIMIT = 92;
+        
+        private final AtomicLongArray small = new AtomicLongArray(LONG_LIMIT + 1);
+        private volatile AtomicReferenceArray<BigInteger> large = new AtomicReferenceArray<>(16);
+        // Quantidade de valores preenchidos na tabela de BigInteger
+        private volatile int largeSize = 0;
+        private final int capacity;
+        
+        /**
+         * @param capacity quantidade máxima de valores guardados acima de F(92)
+         * */
+        Memo(int capacity){
+            this.capacity = capacity;
+            small.set(1, 1);
+        }
+        
+        /**
+         * @return F(n) para n até 92, ou 0 se ainda não foi calculado (n > 0)
+         * */
+        long getLong(int n){
+            return small.get(n);
+        }
+        
+        void putLong(int n, long value){
+            small.set(n, value);
+        }
+        
+        /**
+         * @return F(n), guardando na tabela os valores calculados até n
+         * */
+        BigInteger get(int n){
+            if( n < 0 ){
+                throw new IllegalArgumentException("O índice não pode ser negativo: " + n);
+            }
+            
+            if( n <= LONG_LIMIT ){
+                long value = getLong(n);
+                if( value == 0 && n > 0 ){
+                    value = fillLong(n);
+                }
+                return BigInteger.valueOf(value);
+            }
+            
+            int index = n - LONG_LIMIT - 1;
+            if( index >= capacity ){
+                return fib6(n);
+            }
+            
+            if( index < largeSize ){
+                return large.get(index);
+            }
+            return fillLarge(index);
+        }
+        
+        // Preenche em ordem os valores que cabem em long, sem recursão
+        private long fillLong(int n){
+            long last = 0, next = 1;
+            for(int i = 2; i <= n; i++){
+                long value = last + next;
+                last = next;
+                next = value;
+                small.set(i, value);
+            }
+            return n == 0 ? 0 : next;
+        }
+        
+        private synchronized BigInteger fillLarge(int index){
+            AtomicReferenceArray<BigInteger> table = large;
+            int size = largeSize;
+            if( index < size ){
+                return table.get(index);
+            }
+            
+            if( index >= table.length() ){
+                int length = Math.min(capacity, Math.max(index + 1, table.length() * 2));
+                AtomicReferenceArray<BigInteger> grown = new AtomicReferenceArray<>(length);
+                for(int i = 0; i < size; i++){
+                    grown.set(i, table.get(i));
+                }
+                table = grown;
+                large = grown;
+            }
+            
+            // Os dois valores anteriores ao primeiro que falta
+            BigInteger last = size >= 2 ? table.get(size - 2) : get(LONG_LIMIT + size - 1);
+            BigInteger next = size >= 1 ? table.get(size - 1) : get(LONG_LIMIT + size);
+            for(int i = size; i <= index; i++){
+                BigInteger value = last.add(next);
+                last = next;
+                next = value;
+                table.set(i, value);
+            }
+            
+            largeSize = index + 1;
+            return next;
+        }
+    }
 
     public static void main(String[] args) {
         // StackOverFlow
@@ -30,6 +151,11 @@ public class fibonacci {
         // Utiliza��o da stream
         //Fib5 fib5 = new Fib5();
         //fib5.stream().limit(41).forEachOrdered(System.out::println);
+        //fib5.bigStream(0, 1000).parallel().forEachOrdered(System.out::println);
+        
+        // Duplicação rápida com BigInteger
+        //System.out.println( fib6(100) );
+        //System.out.println( fib6(10_000_000).bitLength() );
     }
 
     /**
@@ -51,17 +177,25 @@ public class fibonacci {
     /**
      * Recursão com melhoria utilizando o conceito de memorização
      * dos valores já calculados.
-     * Esse método utiliza um map para guardar os valores calculados,
+     * Esse método utiliza uma tabela para guardar os valores calculados,
      * o que nos faz economizar um tempo de execução muito importante,
      * para valores relativamente altos.
+     * Somente até F(92), que é o maior valor que cabe em um long; para
+     * índices maiores use memo.get(n) ou fib6(n).
      * */
-    private static int fib3(int n){
-        if( !memo.containsKey(n) ){
+    private static long fib3(int n){
+        if( n > Memo.LONG_LIMIT ){
+            throw new IllegalArgumentException("F(" + n + ") não cabe em um long");
+        }
+        
+        long value = memo.getLong(n);
+        if( value == 0 && n > 0 ){
             // Memorização do valor
-            memo.put(n, fib3(n - 1) + fib3(n - 2) );
+            value = fib3(n - 1) + fib3(n - 2);
+            memo.putLong(n, value);
         }
 
-        return memo.get(n);
+        return value;
     }
 
     /**
@@ -81,19 +215,269 @@ public class fibonacci {
     }
     
     /**
-     * Utilizando stream para melhorar ainda mais o tempo de execu��o.
-     * Necess�rio estar numa nova classe isolada para ter o funcionamento.
+     * Utilizando stream para melhorar ainda mais o tempo de execução.
+     * Os streams são divisíveis: cada parte começa no seu próprio índice,
+     * calculado por duplicação rápida, e segue somando os dois últimos valores.
+     * Assim o resultado é o mesmo com parallel(), na ordem correta.
      */
     public static class Fib5{
-        private int last = 0, next = 1; // fib(0) e fib(1)
         
-        public IntStream stream(){
-            return IntStream.generate( () -> {
-                int oldLast = last;
-                last = next;
-                next += oldLast;
-                return oldLast;
-            } );
+        /**
+         * @return F(0) até F(92), todos os valores que cabem em um long
+         * */
+        public LongStream stream(){
+            return StreamSupport.longStream(new LongSpliterator(0, Memo.LONG_LIMIT + 1), false);
+        }
+        
+        /**
+         * @return F(0), F(1)... sem limite prático, use limit() para parar
+         * */
+        public Stream<BigInteger> bigStream(){
+            return bigStream(0, Integer.MAX_VALUE);
+        }
+        
+        /**
+         * @return F(from) até F(to - 1)
+         * */
+        public Stream<BigInteger> bigStream(int from, int to){
+            if( from < 0 || from > to ){
+                throw new IllegalArgumentException("Intervalo inválido: [" + from + ", " + to + ")");
+            }
+            return StreamSupport.stream(new BigSpliterator(from, to), false);
+        }
+    }
+    
+    /**
+     * Percorre F(origin) até F(fence - 1) em long. O par inicial só é calculado
+     * no primeiro avanço, então uma parte dividida e ainda não usada não custa nada.
+     * */
+    static class LongSpliterator implements Spliterator.OfLong {
+        private int origin;
+        private final int fence;
+        private boolean seeded = false;
+        private long last, next;
+        
+        LongSpliterator(int origin, int fence){
+            this.origin = origin;
+            this.fence = fence;
+        }
+        
+        private void seed(){
+            if( !seeded ){
+                long[] pair = fibPair(origin);
+                last = pair[0];
+                next = pair[1];
+                seeded = true;
+            }
+        }
+        
+        @Override
+        public boolean tryAdvance(LongConsumer action){
+            if( origin >= fence ){
+                return false;
+            }
+            
+            seed();
+            long value = last;
+            last = next;
+            next += value;
+            origin++;
+            action.accept(value);
+            return true;
         }
+        
+        @Override
+        public void forEachRemaining(LongConsumer action){
+            if( origin >= fence ){
+                return;
+            }
+            
+            seed();
+            long a = last, b = next;
+            for(int i = origin; i < fence; i++){
+                action.accept(a);
+                long value = a + b;
+                a = b;
+                b = value;
+            }
+            origin = fence;
+        }
+        
+        @Override
+        public Spliterator.OfLong trySplit(){
+            int middle = (origin + fence) >>> 1;
+            if( middle <= origin ){
+                return null;
+            }
+            
+            // O prefixo continua com o par atual e esta parte recomeça no meio
+            LongSpliterator prefix = new LongSpliterator(origin, middle);
+            prefix.seeded = seeded;
+            prefix.last = last;
+            prefix.next = next;
+            origin = middle;
+            seeded = false;
+            return prefix;
+        }
+        
+        @Override
+        public long estimateSize(){
+            return fence - origin;
+        }
+        
+        @Override
+        public int characteristics(){
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+    
+    /**
+     * Mesmo que o LongSpliterator, com BigInteger e sem limite de tamanho.
+     * */
+    static class BigSpliterator implements Spliterator<BigInteger> {
+        // Partes menores que isso não são mais divididas
+        private static final int MIN_SPLIT = 64;
+        
+        private int origin;
+        private final int fence;
+        private BigInteger last, next;
+        
+        BigSpliterator(int origin, int fence){
+            this.origin = origin;
+            this.fence = fence;
+        }
+        
+        private void seed(){
+            if( last == null ){
+                BigInteger[] pair = fibPair(origin, null);
+                last = pair[0];
+                next = pair[1];
+            }
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super BigInteger> action){
+            if( origin >= fence ){
+                return false;
+            }
+            
+            seed();
+            BigInteger value = last;
+            last = next;
+            next = next.add(value);
+            origin++;
+            action.accept(value);
+            return true;
+        }
+        
+        @Override
+        public Spliterator<BigInteger> trySplit(){
+            if( fence - origin < 2 * MIN_SPLIT ){
+                return null;
+            }
+            
+            int middle = (origin + fence) >>> 1;
+            BigSpliterator prefix = new BigSpliterator(origin, middle);
+            prefix.last = last;
+            prefix.next = next;
+            origin = middle;
+            last = next = null;
+            return prefix;
+        }
+        
+        @Override
+        public long estimateSize(){
+            return fence - origin;
+        }
+        
+        @Override
+        public int characteristics(){
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+    
+    /**
+     * Duplicação rápida em long: {F(n), F(n+1)}. F(n+1) estoura para n = 92,
+     * mas nesse caso ele nunca é usado.
+     * */
+    static long[] fibPair(int n){
+        long a = 0, b = 1;
+        for(int bit = 31 - Integer.numberOfLeadingZeros(n); bit >= 0; bit--){
+            long even = a * (2 * b - a);
+            long odd = a * a + b * b;
+            if( ((n >>> bit) & 1) == 0 ){
+                a = even;
+                b = odd;
+            }else {
+                a = odd;
+                b = even + odd;
+            }
+        }
+        return new long[]{a, b};
+    }
+    
+    /**
+     * Duplicação rápida (fast doubling) com BigInteger, sem overflow e com
+     * O(log n) passos, usando as identidades:
+     *  - F(2k) = F(k) * (2F(k+1) - F(k))
+     *  - F(2k+1) = F(k+1)^2 + F(k)^2
+     * Os bits de n são percorridos do mais alto para o mais baixo, dobrando o
+     * índice a cada passo e somando um quando o bit está ligado.
+     * */
+    public static BigInteger fib6(int n){
+        return fib6(n, null);
+    }
+    
+    /**
+     * Duplicação rápida em que as três multiplicações independentes de cada
+     * passo rodam em paralelo no pool quando os números são grandes. Nos passos
+     * iniciais os números são pequenos e o custo de criar tarefas não compensa.
+     * 
+     * @param n índice, não negativo
+     * @param pool pool das multiplicações, ou null para calcular tudo nesta thread
+     * */
+    public static BigInteger fib6(int n, ForkJoinPool pool){
+        return fibPair(n, pool)[0];
+    }
+    
+    /**
+     * @return {F(n), F(n+1)}
+     * */
+    static BigInteger[] fibPair(int n, ForkJoinPool pool){
+        if( n < 0 ){
+            throw new IllegalArgumentException("O índice não pode ser negativo: " + n);
+        }
+        
+        BigInteger a = BigInteger.ZERO; // F(k)
+        BigInteger b = BigInteger.ONE;  // F(k+1)
+        
+        for(int bit = 31 - Integer.numberOfLeadingZeros(n); bit >= 0; bit--){
+            BigInteger twoBMinusA = b.shiftLeft(1).subtract(a);
+            BigInteger even, aa, bb;
+            
+            if( pool != null && a.bitLength() >= PARALLEL_BITS ){
+                final BigInteger x = a, y = b;
+                ForkJoinTask<BigInteger> squareA = pool.submit( () -> x.multiply(x) );
+                ForkJoinTask<BigInteger> squareB = pool.submit( () -> y.multiply(y) );
+                even = a.multiply(twoBMinusA);
+                aa = squareA.join();
+                bb = squareB.join();
+            }else {
+                even = a.multiply(twoBMinusA);
+                aa = a.multiply(a);
+                bb = b.multiply(b);
+            }
+            
+            BigInteger odd = aa.add(bb); // F(2k+1)
+            if( ((n >>> bit) & 1) == 0 ){
+                a = even;
+                b = odd;
+            }else {
+                a = odd;
+                b = even.add(odd);
+            }
+        }
+        
+        return new BigInteger[]{a, b};
     }
 }
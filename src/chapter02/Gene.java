@@ -1,9 +1,15 @@
 package chapter02;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Problemas de algoritmo de busca
@@ -13,31 +19,98 @@ import java.util.Comparator;
  * composto por varios codons, um codon e um conjunto de tres 
  * nucleotideos, e um nucleotideo pode ser A, C, G ou T.
  * 
+ * Cada codon e guardado como um numero de 6 bits (0 a 63), com 2 bits por
+ * nucleotideo e o primeiro nos bits mais altos, entao comparar os numeros e
+ * o mesmo que comparar o primeiro, depois o segundo e depois o terceiro
+ * nucleotideo. O gene e um byte[] com esses numeros.
+ *
  * @author Emerson
  * @since 2023
  * @see David Kopec - Classic Computer Science Problems in Java
  * */
 public class Gene {
-
-	// Array para armazenar os codons que formam um gene
-	private ArrayList<Codon> codons = new ArrayList<>();
+	
+	// Array para armazenar os codons que formam um gene, um byte por codon
+	private final byte[] codons;
+	private final int size;
+	// Nucleotideos que sobram no final sem formar um codon (0 a 2), 2 bits cada,
+	// o primeiro nos bits mais altos; so entram na traducao das fases de leitura
+	private final int tail, tailLength;
+	
+	// Indice criado na primeira consulta e reaproveitado nas seguintes
+	private volatile CodonIndex index;
 	
 	enum Nucleotide{
-		A, C, G, T
+		A, C, G, T;
+		
+		private static final Nucleotide[] VALUES = values();
+		
+		// Codigo de cada caractere (maiusculo ou minusculo), -1 se invalido
+		private static final byte[] CODES = new byte[128];
+		
+		static {
+			Arrays.fill(CODES, (byte) -1);
+			for(Nucleotide nucleotide : VALUES) {
+				char c = nucleotide.name().charAt(0);
+				CODES[c] = (byte) nucleotide.ordinal();
+				CODES[Character.toLowerCase(c)] = (byte) nucleotide.ordinal();
+			}
+		}
+		
+		static Nucleotide of(int code) {
+			return VALUES[code];
+		}
+		
+		static int code(char c) {
+			int code = c < CODES.length ? CODES[c] : -1;
+			if(code < 0) {
+				throw new IllegalArgumentException("Nucleotideo invalido: " + c);
+			}
+			return code;
+		}
 	}
 	
 	static class Codon implements Comparable<Codon>{
-		public final Nucleotide first, second, third;
-		private final Comparator<Codon> comparator = 
-				Comparator.comparing((Codon c) -> c.first).
-				thenComparing((Codon c) -> c.second).
-				thenComparing((Codon c) -> c.third);
+		// Os 64 codons possiveis, para nao criar objetos repetidos
+		private static final Codon[] ALL = new Codon[64];
+		
+		static {
+			for(int code = 0; code < ALL.length; code++) {
+				ALL[code] = new Codon(code);
+			}
+		}
+		
+		public final int code;
+		
+		private Codon(int code) {
+			this.code = code;
+		}
 		
 		Codon(String codonStr){
-			codonStr = codonStr.toUpperCase(); // garante a formatacao ideal
-			first = Nucleotide.valueOf( codonStr.substring(0, 1) );
-			second = Nucleotide.valueOf( codonStr.substring(1, 2) );
-			third = Nucleotide.valueOf( codonStr.substring(2, 3) );
+			if(codonStr.length() != 3) {
+				throw new IllegalArgumentException("Um codon tem 3 nucleotideos: " + codonStr);
+			}
+			this.code = encode(codonStr.charAt(0), codonStr.charAt(1), codonStr.charAt(2));
+		}
+		
+		static Codon of(int code) {
+			return ALL[code];
+		}
+		
+		static int encode(char first, char second, char third) {
+			return Nucleotide.code(first) << 4 | Nucleotide.code(second) << 2 | Nucleotide.code(third);
+		}
+		
+		public Nucleotide first() {
+			return Nucleotide.of(code >>> 4);
+		}
+		
+		public Nucleotide second() {
+			return Nucleotide.of((code >>> 2) & 3);
+		}
+		
+		public Nucleotide third() {
+			return Nucleotide.of(code & 3);
 		}
 		
 		@Override
@@ -45,16 +118,484 @@ public class Gene {
 			/**
 			 * O primeiro e comparado, entao o segundo, etc.
 			 * IOW primeiro tem precedencia sobre o segundo e
-			 * o segundo sobre o terceiro
+			 * o segundo sobre o terceiro. Como o primeiro esta
+			 * nos bits mais altos, basta comparar os codigos.
 			 * */
-			return comparator.compare(this, other);
+			return Integer.compare(code, other.code);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Codon && ((Codon) obj).code == code;
+		}
+		
+		@Override
+		public int hashCode() {
+			return code;
+		}
+		
+		@Override
+		public String toString() {
+			return "" + first() + second() + third();
 		}
 	}
 	
 	Gene(String geneStr){
-		for(int i = 0; i < geneStr.length() - 3; i += 3) {
+		codons = new byte[geneStr.length() / 3];
+		int count = 0;
+		int i = 0;
+		for(; i + 3 <= geneStr.length(); i += 3) {
 			// Pega todos os 3 caracteres na string para formar um codon
-			codons.add( new Codon(geneStr.substring(i, i + 3)) );
+			codons[count++] = (byte) Codon.encode(geneStr.charAt(i), geneStr.charAt(i + 1), geneStr.charAt(i + 2));
+		}
+		size = count;
+		
+		tailLength = geneStr.length() - i;
+		int rest = 0;
+		for(; i < geneStr.length(); i++) {
+			rest = rest << 2 | Nucleotide.code(geneStr.charAt(i));
+		}
+		tail = rest;
+	}
+	
+	private Gene(byte[] codons, int size, int tail, int tailLength) {
+		this.codons = codons;
+		this.size = size;
+		this.tail = tail;
+		this.tailLength = tailLength;
+	}
+	
+	// Tamanho dos blocos lidos do Reader ou do canal
+	private static final int CHUNK_SIZE = 1 << 16;
+	
+	/**
+	 * Le o gene de um Reader em blocos, sem criar strings. Espacos e quebras
+	 * de linha sao ignorados, assim como linhas de cabecalho FASTA (iniciadas
+	 * por '>' ou ';'). Nucleotideos que sobram no final sem formar um codon
+	 * nao entram nas buscas, somente na traducao das fases de leitura.
+	 * 
+	 * @param reader origem dos nucleotideos
+	 * @return o gene lido
+	 * */
+	public static Gene read(Reader reader) throws IOException {
+		Parser parser = new Parser();
+		char[] chunk = new char[CHUNK_SIZE];
+		for(int read = reader.read(chunk); read != -1; read = reader.read(chunk)) {
+			for(int i = 0; i < read; i++) {
+				parser.accept(chunk[i]);
+			}
+		}
+		return parser.build();
+	}
+	
+	/**
+	 * Le o gene de um canal (ASCII) em blocos, com as mesmas regras do
+	 * {@link #read(Reader)}.
+	 * 
+	 * @param channel origem dos nucleotideos
+	 * @return o gene lido
+	 * */
+	public static Gene read(ReadableByteChannel channel) throws IOException {
+		Parser parser = new Parser();
+		ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		while(channel.read(chunk) != -1) {
+			chunk.flip();
+			byte[] bytes = chunk.array();
+			for(int i = 0, end = chunk.limit(); i < end; i++) {
+				parser.accept((char) (bytes[i] & 0xFF));
+			}
+			chunk.clear();
+		}
+		return parser.build();
+	}
+	
+	/**
+	 * Junta os nucleotideos de tres em tres direto no codigo do codon. O array
+	 * de codons dobra de tamanho quando enche e e cortado no final.
+	 * */
+	private static class Parser{
+		private byte[] codons = new byte[1024];
+		private int size = 0;
+		// Codon em formacao e quantos nucleotideos ele ja tem
+		private int pending = 0, pendingCount = 0;
+		private boolean header = false, lineStart = true;
+		
+		void accept(char c) {
+			if(header) {
+				if(c == '\n') {
+					header = false;
+					lineStart = true;
+				}
+				return;
+			}
+			
+			if(c == '\n' || c == '\r') {
+				lineStart = true;
+				return;
+			}
+			if(lineStart && (c == '>' || c == ';')) {
+				header = true;
+				return;
+			}
+			lineStart = false;
+			if(Character.isWhitespace(c)) {
+				return;
+			}
+			
+			pending = pending << 2 | Nucleotide.code(c);
+			if(++pendingCount == 3) {
+				if(size == codons.length) {
+					codons = Arrays.copyOf(codons, codons.length * 2);
+				}
+				codons[size++] = (byte) pending;
+				pending = 0;
+				pendingCount = 0;
+			}
+		}
+		
+		Gene build() {
+			return new Gene(size == codons.length ? codons : Arrays.copyOf(codons, size), size, pending, pendingCount);
+		}
+	}
+	
+	/**
+	 * @return quantidade de codons
+	 * */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return quantidade de nucleotideos, incluindo os que sobram no final
+	 * 		sem formar um codon
+	 * */
+	public int nucleotides() {
+		return size * 3 + tailLength;
+	}
+	
+	/**
+	 * @return o codon na posicao
+	 * */
+	public Codon codonAt(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Posicao " + index + ", tamanho " + size);
+		}
+		return Codon.of(codons[index]);
+	}
+	
+	/**
+	 * Indice dos codons de um gene, criado uma unica vez:
+	 * 	- presence: o bit c ligado indica que o codon c aparece no gene;
+	 * 	- positions: as posicoes de todos os codons, agrupadas por codon e em
+	 * 		ordem crescente dentro de cada grupo; as do codon c ficam entre
+	 * 		offsets[c] e offsets[c + 1];
+	 * 	- sorted: os codons ordenados, usado pela busca binaria.
+	 * */
+	static final class CodonIndex{
+		final long presence;
+		final int[] offsets = new int[65];
+		final int[] positions;
+		final byte[] sorted;
+		
+		CodonIndex(byte[] codons, int size) {
+			// Primeira passada: quantidade de cada codon
+			for(int i = 0; i < size; i++) {
+				offsets[codons[i] + 1]++;
+			}
+			
+			long mask = 0;
+			for(int code = 0; code < 64; code++) {
+				if(offsets[code + 1] != 0) {
+					mask |= 1L << code;
+				}
+				offsets[code + 1] += offsets[code];
+			}
+			presence = mask;
+			
+			// Segunda passada: posicoes de cada codon
+			positions = new int[size];
+			int[] next = Arrays.copyOf(offsets, 64);
+			for(int i = 0; i < size; i++) {
+				positions[next[codons[i]]++] = i;
+			}
+			
+			// Os grupos ja estao em ordem, entao os codons ordenados saem das contagens
+			sorted = new byte[size];
+			for(int code = 0; code < 64; code++) {
+				Arrays.fill(sorted, offsets[code], offsets[code + 1], (byte) code);
+			}
+		}
+	}
+	
+	private CodonIndex index() {
+		CodonIndex current = index;
+		if(current == null) {
+			// Duas threads podem criar ao mesmo tempo, o resultado e o mesmo
+			current = new CodonIndex(codons, size);
+			index = current;
+		}
+		return current;
+	}
+	
+	/**
+	 * @return true se o codon aparece no gene, em O(1) depois de criado o indice
+	 * */
+	public boolean contains(Codon key) {
+		return (index().presence & (1L << key.code)) != 0;
+	}
+	
+	/**
+	 * @return mascara com o bit c ligado para cada codon c presente no gene
+	 * */
+	public long presenceMask() {
+		return index().presence;
+	}
+	
+	/**
+	 * @return quantidade de vezes que o codon aparece
+	 * */
+	public int count(Codon key) {
+		CodonIndex current = index();
+		return current.offsets[key.code + 1] - current.offsets[key.code];
+	}
+	
+	/**
+	 * @return posicoes do codon no gene, em ordem crescente
+	 * */
+	public int[] positions(Codon key) {
+		CodonIndex current = index();
+		return Arrays.copyOfRange(current.positions, current.offsets[key.code], current.offsets[key.code + 1]);
+	}
+	
+	/**
+	 * Verifica quais dos codons procurados aparecem no gene com uma unica
+	 * passada, parando assim que todos forem encontrados. Se o indice ja foi
+	 * criado ele e usado direto.
+	 * 
+	 * @param wanted mascara dos codons procurados
+	 * @return mascara dos codons procurados que aparecem no gene
+	 * */
+	long presence(long wanted) {
+		CodonIndex current = index;
+		if(current != null) {
+			return current.presence & wanted;
+		}
+		
+		long found = 0;
+		for(int i = 0; i < size && found != wanted; i++) {
+			found |= (1L << codons[i]) & wanted;
+		}
+		return found;
+	}
+	
+	/**
+	 * Consulta varios codons em varios genes no pool comum.
+	 * 
+	 * @see #containsAll(List, List, ForkJoinPool)
+	 * */
+	public static boolean[][] containsAll(List<Gene> genes, List<Codon> queries) {
+		return containsAll(genes, queries, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Consulta varios codons em varios genes. Os genes sao divididos entre as
+	 * tarefas do pool e cada gene e percorrido uma unica vez para todos os
+	 * codons procurados.
+	 * 
+	 * @param genes genes consultados
+	 * @param queries codons procurados
+	 * @param pool pool onde as tarefas serao executadas
+	 * @return matriz em que [g][q] indica se o codon q aparece no gene g
+	 * */
+	public static boolean[][] containsAll(List<Gene> genes, List<Codon> queries, ForkJoinPool pool) {
+		long wanted = 0;
+		for(Codon query : queries) {
+			wanted |= 1L << query.code;
+		}
+		
+		Gene[] array = genes.toArray(new Gene[0]);
+		long[] found = new long[array.length];
+		pool.invoke(new PresenceTask(array, wanted, found, 0, array.length));
+		
+		boolean[][] result = new boolean[array.length][queries.size()];
+		for(int g = 0; g < array.length; g++) {
+			for(int q = 0; q < result[g].length; q++) {
+				result[g][q] = (found[g] & (1L << queries.get(q).code)) != 0;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Calcula a presenca dos codons procurados nos genes [from, to), dividindo
+	 * ao meio enquanto o intervalo tiver codons demais para uma unica tarefa.
+	 * */
+	private static class PresenceTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		// Quantidade de codons a partir da qual o intervalo e dividido
+		private static final long THRESHOLD = 1 << 16;
+		
+		private final Gene[] genes;
+		private final long wanted;
+		private final long[] found;
+		private final int from, to;
+		
+		PresenceTask(Gene[] genes, long wanted, long[] found, int from, int to) {
+			this.genes = genes;
+			this.wanted = wanted;
+			this.found = found;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			long codons = 0;
+			for(int g = from; g < to; g++) {
+				codons += genes[g].size;
+			}
+			
+			if(to - from == 1 || codons <= THRESHOLD) {
+				for(int g = from; g < to; g++) {
+					found[g] = genes[g].presence(wanted);
+				}
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new PresenceTask(genes, wanted, found, from, middle), 
+					new PresenceTask(genes, wanted, found, middle, to));
+		}
+	}
+	
+	/**
+	 * Codigo genetico padrao: o aminoacido (letra ASCII, '*' para parada) de
+	 * cada codon, indexado pelo codigo de 6 bits.
+	 * */
+	static final byte[] AMINO_ACIDS = "KNKNTTTTRSRSIIMIQHQHPPPPRRRRLLLLEDEDAAAAGGGGVVVV*Y*YSSSS*CWCLFLF"
+			.getBytes(StandardCharsets.US_ASCII);
+	
+	// Aminoacido do complemento reverso de cada codon
+	private static final byte[] REVERSE_AMINO_ACIDS = new byte[64];
+	
+	static {
+		for(int code = 0; code < 64; code++) {
+			// Complemento: A <-> T e C <-> G, ou seja, 3 - nucleotideo
+			int reverse = (3 - (code & 3)) << 4 | (3 - ((code >>> 2) & 3)) << 2 | (3 - (code >>> 4));
+			REVERSE_AMINO_ACIDS[code] = AMINO_ACIDS[reverse];
+		}
+	}
+	
+	/**
+	 * @return proteina da primeira fase de leitura, um aminoacido por codon
+	 * */
+	public byte[] translate() {
+		byte[] protein = new byte[size];
+		for(int i = 0; i < size; i++) {
+			protein[i] = AMINO_ACIDS[codons[i]];
+		}
+		return protein;
+	}
+	
+	/**
+	 * Traduz as seis fases de leitura no pool comum.
+	 * 
+	 * @see #translateFrames(ForkJoinPool)
+	 * */
+	public byte[][] translateFrames() {
+		return translateFrames(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Traduz as seis fases de leitura ao mesmo tempo: as tres do gene, comecando
+	 * no nucleotideo 0, 1 e 2, e as tres do complemento reverso. Cada fase e uma
+	 * tarefa, dividida em partes se o gene for grande. Os codons de uma fase
+	 * deslocada sao montados de dois bytes vizinhos, sem voltar aos nucleotideos.
+	 * Os nucleotideos que sobram no final do gene (quando o tamanho nao e
+	 * multiplo de 3) tambem sao usados, entao as fases +1, +2 e as do
+	 * complemento reverso sao as da sequencia completa.
+	 * 
+	 * @param pool pool onde as tarefas serao executadas
+	 * @return as proteinas (letras ASCII) das fases +0, +1, +2, -0, -1 e -2
+	 * */
+	public byte[][] translateFrames(ForkJoinPool pool) {
+		int nucleotides = nucleotides();
+		byte[][] proteins = new byte[6][];
+		TranslateTask[] tasks = new TranslateTask[6];
+		for(int frame = 0; frame < 6; frame++) {
+			proteins[frame] = new byte[Math.max(0, (nucleotides - frame % 3) / 3)];
+			tasks[frame] = new TranslateTask(this, frame, proteins[frame], 0, proteins[frame].length);
+		}
+		
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		return proteins;
+	}
+	
+	// Codon que comeca no nucleotideo 3 * index + offset (offset de 0 a 2)
+	private int window(int index, int offset) {
+		if(offset == 0) {
+			return codons[index];
+		}
+		return ((codons[index] << 6 | codonOrTail(index + 1)) >>> (6 - 2 * offset)) & 63;
+	}
+	
+	// Depois do ultimo codon vem a sobra, completada com zeros a direita
+	private int codonOrTail(int index) {
+		return index < size ? codons[index] : tail << (2 * (3 - tailLength));
+	}
+	
+	/**
+	 * Traduz os aminoacidos [from, to) de uma fase de leitura.
+	 * */
+	private static class TranslateTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		// Quantidade de aminoacidos a partir da qual a fase e dividida
+		private static final int THRESHOLD = 1 << 16;
+		
+		private final Gene gene;
+		private final int frame;
+		private final byte[] protein;
+		private final int from, to;
+		
+		TranslateTask(Gene gene, int frame, byte[] protein, int from, int to) {
+			this.gene = gene;
+			this.frame = frame;
+			this.protein = protein;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TranslateTask(gene, frame, protein, from, middle), 
+						new TranslateTask(gene, frame, protein, middle, to));
+				return;
+			}
+			
+			if(frame < 3) {
+				// Aminoacido k comeca no nucleotideo 3k + frame
+				for(int k = from; k < to; k++) {
+					protein[k] = AMINO_ACIDS[gene.window(k, frame)];
+				}
+			}else {
+				// Aminoacido k do complemento reverso vem do codon que comeca no
+				// nucleotideo n - 3 - shift - 3k do gene, lido ao contrario
+				int start = gene.nucleotides() - 3 - (frame - 3);
+				int offset = start % 3;
+				int index = start / 3 - from;
+				for(int k = from; k < to; k++, index--) {
+					protein[k] = REVERSE_AMINO_ACIDS[gene.window(index, offset)];
+				}
+			}
 		}
 	}
 	
@@ -68,8 +609,9 @@ public class Gene {
 	 * @return true se o codon for encontrado, caso contrario false
 	 * */
 	private boolean linearContains(Codon key) {
-		for(Codon codon : codons) {
-			if(codon.compareTo(key) == 0) return true;
+		byte code = (byte) key.code;
+		for(int i = 0; i < size; i++) {
+			if(codons[i] == code) return true;
 		}
 		
 		return false;
@@ -88,20 +630,19 @@ public class Gene {
 	 * @return true se o codon for encontrado, caso contrario false
 	 * */
 	private boolean binarySearch(Codon key) {
-		// Uma copia do array garantindo que estara ordenado
-		ArrayList<Codon> sortedCodons = new ArrayList<>(codons);
-		Collections.sort(sortedCodons);
+		// Os codons ordenados sao criados uma unica vez, junto com o indice
+		byte[] sortedCodons = index().sorted;
 		
 		// Variaveis usadas para auxiliar na busca
 		int low = 0;
-		int high = codons.size() - 1;
+		int high = sortedCodons.length - 1;
 		
 		// Mantemos a busca enquanto o limite e menor que o tamanho do array
 		while( low <= high ) {
 			// Elemento do meio para verificar para qual lado iremos
 			int middle = (low + high) / 2;
 			
-			int comparision = codons.get(middle).compareTo(key);
+			int comparision = Integer.compare(sortedCodons[middle], key.code);
 			if(comparision < 0) { // Elemento do meio e menor que o procurado
 				low = middle + 1;
 			}else if(comparision > 0) { // Elemento do meio e maior que o procurado
@@ -119,8 +660,9 @@ public class Gene {
 		String geneStr = "ACGTGGCTCTCTAACGTACGTACGTACGGGGTTTATATATACCCTAGGACTCCCTTT";
 		
 		Gene gene = new Gene(geneStr);
-		gene.codons.forEach(
-				(codon) -> System.out.println(codon.first + "" + codon.second + "" + codon.third));
+		for(int i = 0; i < gene.size(); i++) {
+			System.out.println(gene.codonAt(i));
+		}
 		
 		Codon acg = new Codon("ACG");
 		Codon gat = new Codon("GAT");
@@ -138,6 +680,37 @@ public class Gene {
 		System.out.println("GAT foi encontrado? " + gene.binarySearch(gat));
 		System.out.println("TTG foi encontrado? " + gene.binarySearch(ttg));
 		// Exemplo utilizando a bibliotece padrao do Java
-		System.out.println("ACG foi encontrado (lib)? " + (Collections.binarySearch(gene.codons, acg) >= 0 ? "true" : "false") );
+		System.out.println("ACG foi encontrado (lib)? " + (Arrays.binarySearch(gene.index().sorted, (byte) acg.code) >= 0 ? "true" : "false") );
+		
+		// Testando o indice
+		System.out.println();
+		System.out.println("ACG foi encontrado (indice)? " + gene.contains(acg));
+		System.out.println("Posicoes de ACG: " + Arrays.toString(gene.positions(acg)));
+		
+		// Lendo de um Reader, com cabecalho FASTA e quebras de linha
+		try {
+			Gene read = read(new StringReader(">exemplo\nACGTGG\nCTC\n"));
+			System.out.println();
+			System.out.println("Gene lido: " + read.size() + " codons, ultimo " + read.codonAt(read.size() - 1));
+		}catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+		
+		// Traducao das seis fases de leitura
+		byte[][] proteins = gene.translateFrames();
+		System.out.println();
+		for(int frame = 0; frame < proteins.length; frame++) {
+			System.out.println("Fase " + (frame < 3 ? "+" : "-") + frame % 3 + ": " 
+					+ new String(proteins[frame], StandardCharsets.US_ASCII));
+		}
+		
+		// Varios codons em varios genes de uma vez
+		List<Gene> genes = List.of(gene, new Gene("TTGGATTTG"), new Gene("CCCAAAGGGTTT"));
+		List<Codon> queries = List.of(acg, gat, ttg);
+		boolean[][] matrix = containsAll(genes, queries);
+		System.out.println();
+		for(int g = 0; g < matrix.length; g++) {
+			System.out.println("Gene " + g + ": " + Arrays.toString(matrix[g]));
+		}
 	}
 }
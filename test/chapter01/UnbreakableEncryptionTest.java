@@ -0,0 +1,59 @@
+package chapter01;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Criptografia e descriptografia no proprio buffer, para buffers no heap e
+ * diretos. Lanca AssertionError na primeira falha.
+ *
+ * @author Emerson
+ * @since 2023
+ * @see David Kopec - Classic Computer Science Problems in Java
+ * */
+public class UnbreakableEncryptionTest {
+
+	public static void main(String[] args) {
+		inPlace(ByteBuffer.allocate(64), ByteBuffer.allocate(64));
+		inPlace(ByteBuffer.allocateDirect(64), ByteBuffer.allocateDirect(64));
+		// Ordens de bytes diferentes usam o caminho byte a byte
+		inPlace(ByteBuffer.allocateDirect(64), ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN));
+
+		System.out.println("OK");
+	}
+
+	private static void inPlace(ByteBuffer buffer, ByteBuffer pad) {
+		byte[] original = "Test your luck in place!".getBytes(StandardCharsets.UTF_8);
+		buffer.put(original).flip();
+
+		int encrypted = UnbreakableEncryption.encrypt(buffer, pad, buffer);
+		check(encrypted == original.length, "quantidade criptografada: " + encrypted);
+		check(buffer.position() == original.length && !buffer.hasRemaining(), "posicao depois de criptografar: " + buffer);
+		check(pad.position() == original.length, "posicao da chave: " + pad);
+		check(!Arrays.equals(bytes(buffer), original), "conteudo nao foi criptografado");
+
+		buffer.flip();
+		pad.flip();
+		int decrypted = UnbreakableEncryption.decrypt(buffer, pad, buffer);
+		check(decrypted == original.length, "quantidade descriptografada: " + decrypted);
+		check(buffer.position() == original.length, "posicao depois de descriptografar: " + buffer);
+		check(pad.position() == original.length, "posicao da chave: " + pad);
+		check(Arrays.equals(bytes(buffer), original), "conteudo diferente do original");
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.limit()];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(i);
+		}
+		return bytes;
+	}
+
+	private static void check(boolean condition, String message) {
+		if(!condition) {
+			throw new AssertionError(message);
+		}
+	}
+}